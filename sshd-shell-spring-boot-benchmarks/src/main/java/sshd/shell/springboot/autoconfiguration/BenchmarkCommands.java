@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Command map equivalent to what SshdShellAutoConfiguration builds for the commands below.
+ *
+ * @author anand
+ */
+final class BenchmarkCommands {
+
+    private BenchmarkCommands() {
+    }
+
+    static Map<String, Map<String, CommandExecutableDetails>> create() {
+        Map<String, Map<String, CommandExecutableDetails>> commandMap = new TreeMap<>();
+        add(commandMap, new EchoCommand());
+        add(commandMap, new AdminCommand());
+        return commandMap;
+    }
+
+    private static void add(Map<String, Map<String, CommandExecutableDetails>> commandMap, Object obj) {
+        SshdShellCommand annotation = obj.getClass().getAnnotation(SshdShellCommand.class);
+        Map<String, CommandExecutableDetails> map = new TreeMap<>();
+        map.put(Constants.EXECUTE, new CommandExecutableDetails(annotation, null));
+        for (Method method : obj.getClass().getDeclaredMethods()) {
+            SshdShellCommand command = method.getAnnotation(SshdShellCommand.class);
+            if (command != null) {
+                map.put(command.value(), new CommandExecutableDetails(command,
+                        new MethodHandleCommandExecutor(method, obj)));
+            }
+        }
+        commandMap.put(annotation.value(), map);
+    }
+
+    @SshdShellCommand(value = "echo", description = "Echo by users")
+    static class EchoCommand {
+
+        @SshdShellCommand(value = "alice", description = "Alice's echo", roles = {"USER", "ADMIN"})
+        String alice(String arg) {
+            return "alice says " + arg;
+        }
+
+        @SshdShellCommand(value = "bob", description = "Bob's echo", roles = "USER")
+        String bob(String arg) {
+            return "bob says " + arg;
+        }
+    }
+
+    @SshdShellCommand(value = "admin", description = "Admin functionality", roles = "ADMIN")
+    static class AdminCommand {
+
+        @SshdShellCommand(value = "manage", description = "Manage task", roles = "ADMIN")
+        String manage(String arg) {
+            return "managing " + arg;
+        }
+    }
+}
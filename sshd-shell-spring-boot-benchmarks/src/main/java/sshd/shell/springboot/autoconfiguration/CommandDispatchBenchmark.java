@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.ansi.AnsiColor;
+import org.springframework.core.env.StandardEnvironment;
+
+/**
+ * Per line cost of SshSessionInstance.handleUserInput: parsing, lookup, role checks, invocation and output.
+ *
+ * @author anand
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandDispatchBenchmark {
+
+    private SshSessionInstance sessionInstance;
+
+    @Setup
+    public void setUp() {
+        CommandIndex commandIndex = new CommandIndex(BenchmarkCommands.create());
+        sessionInstance = new SshSessionInstance(new SshdShellProperties(), commandIndex, new StandardEnvironment(),
+                null, null, null);
+        SshSessionContext.put(SshSessionContext.WRITER, new PrintWriter(new NullOutputStream()));
+        SshSessionContext.put(SshSessionContext.TEXT_COLOR, AnsiColor.DEFAULT);
+        SshSessionContext.put(SshSessionContext.USER_ROLES, Collections.singleton("USER"));
+        SshSessionContext.put(SshSessionContext.COMMAND_VIEW, commandIndex.forRoles(Collections.singleton("USER")));
+    }
+
+    @TearDown
+    public void tearDown() {
+        SshSessionContext.clear();
+    }
+
+    @Benchmark
+    public void subCommand() throws InterruptedException {
+        sessionInstance.handleUserInput("echo alice hello");
+    }
+
+    @Benchmark
+    public void subCommandListing() throws InterruptedException {
+        sessionInstance.handleUserInput("echo");
+    }
+
+    @Benchmark
+    public void permissionDenied() throws InterruptedException {
+        sessionInstance.handleUserInput("admin manage task");
+    }
+
+    @Benchmark
+    public void unknownCommand() throws InterruptedException {
+        sessionInstance.handleUserInput("unknown");
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares invoking a command method through Method.invoke, as the starter did up to 1.5.x, with the method handle
+ * based executor linked at startup. Run with:
+ * <pre>
+ * java -jar target/benchmarks.jar CommandInvocationBenchmark -prof gc
+ * </pre>
+ *
+ * @author anand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandInvocationBenchmark {
+
+    private final BenchmarkCommand command = new BenchmarkCommand();
+    private final String arg = "bob";
+    private CommandExecutor reflective;
+    private CommandExecutor methodHandle;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        Method method = BenchmarkCommand.class.getDeclaredMethod("run", String.class);
+        reflective = reflectiveExecutor(method, command);
+        methodHandle = new MethodHandleCommandExecutor(method, command);
+    }
+
+    @Benchmark
+    public String direct() {
+        return command.run(arg);
+    }
+
+    @Benchmark
+    public Object reflective() throws InterruptedException {
+        return reflective.get(arg);
+    }
+
+    @Benchmark
+    public Object methodHandle() throws InterruptedException {
+        return methodHandle.get(arg);
+    }
+
+    private static CommandExecutor reflectiveExecutor(Method method, Object obj) {
+        method.setAccessible(true);
+        return arg -> {
+            try {
+                return method.invoke(obj, arg);
+            } catch (InvocationTargetException ex) {
+                if (ex.getCause() instanceof InterruptedException) {
+                    throw (InterruptedException) ex.getCause();
+                }
+                return ex.getCause().toString();
+            } catch (IllegalAccessException | IllegalArgumentException ex) {
+                return ex.toString();
+            }
+        };
+    }
+
+    static class BenchmarkCommand {
+
+        String run(String arg) {
+            return arg;
+        }
+    }
+}
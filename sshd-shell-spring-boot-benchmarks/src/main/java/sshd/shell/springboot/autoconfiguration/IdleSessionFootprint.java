@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import jline.console.ConsoleReader;
+
+/**
+ * Measures the footprint of idle shell sessions, i.e. sessions parked in ConsoleReader.readLine() waiting for the
+ * operator, with platform threads and with virtual threads. Usage:
+ * <pre>
+ * mvn -pl sshd-shell-spring-boot-benchmarks exec:java -Dexec.args="&lt;sessions&gt;"
+ * </pre>
+ * Platform thread stacks are reserved outside the heap, so the live platform thread count is reported alongside the
+ * heap growth per session. Sessions that are not all scheduled within 30 seconds, e.g. because idle sessions pin the
+ * carriers of virtual threads, are reported as starved.
+ *
+ * @author anand
+ */
+public final class IdleSessionFootprint {
+
+    private static final long PARK_TIMEOUT_SECONDS = 30;
+
+    private IdleSessionFootprint() {
+    }
+
+    public static void main(String... args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        System.out.printf("%-10s %10s %18s %20s%n", "mode", "sessions", "heap/session (KB)", "platform threads");
+        measure(sessions, false);
+        measure(sessions, true);
+    }
+
+    private static void measure(int sessions, boolean virtualThreads) throws InterruptedException {
+        SshdShellProperties.Shell.Session.Executor properties = new SshdShellProperties.Shell.Session.Executor();
+        properties.setPoolSize(sessions);
+        properties.setVirtualThreads(virtualThreads);
+        SshSessionExecutor executor = new SshSessionExecutor(properties, new SshdShellProperties.Shell.Jobs());
+        if (virtualThreads && !executor.isVirtualThreads()) {
+            System.out.printf("%-10s %10s%n", "virtual", "unsupported by this runtime");
+            executor.shutdown();
+            return;
+        }
+        long heapBefore = usedHeap();
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        CountDownLatch parked = new CountDownLatch(sessions);
+        for (int i = 0; i < sessions; i++) {
+            executor.submit(() -> awaitInput(parked));
+        }
+        if (!parked.await(PARK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            System.out.printf("%-10s %10d %s%n", virtualThreads ? "virtual" : "platform", sessions,
+                    "starved, only " + (sessions - parked.getCount()) + " sessions were scheduled");
+            executor.shutdown();
+            return;
+        }
+        TimeUnit.MILLISECONDS.sleep(500); // Let every session reach readLine()
+        long heapAfter = usedHeap();
+        int threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+        System.out.printf("%-10s %10d %18.1f %20d%n", virtualThreads ? "virtual" : "platform", sessions,
+                (heapAfter - heapBefore) / 1024.0 / sessions, threadsAfter - threadsBefore);
+        executor.shutdown();
+    }
+
+    private static void awaitInput(CountDownLatch parked) {
+        try (ConsoleReader reader = new ConsoleReader(new IdleInputStream(), new ByteArrayOutputStream())) {
+            parked.countDown();
+            reader.readLine();
+        } catch (IOException ex) {
+            // Interrupted on shutdown
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Input stream that never receives data, blocking on a j.u.c. queue (as the SSHD channel pipe does) rather than
+     * on a monitor so that virtual threads are not pinned to their carrier.
+     */
+    private static class IdleInputStream extends InputStream {
+
+        private final BlockingQueue<Integer> data = new LinkedBlockingQueue<>();
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return data.take();
+            } catch (InterruptedException ex) {
+                throw new InterruptedIOException(ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of role checks for wildcard, matching and non matching role sets, through CommandExecutableDetails.matchesRole
+ * and through the bitset backed CommandIndex.View.
+ *
+ * @author anand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoleMatchingBenchmark {
+
+    private final Collection<String> wildcardRoles = Collections.singleton("*");
+    private final Collection<String> userRoles = new HashSet<>(Arrays.asList("USER", "AUDITOR", "OPERATOR"));
+    private CommandExecutableDetails userCommand;
+    private CommandExecutableDetails adminCommand;
+    private CommandIndex.View wildcardView;
+    private CommandIndex.View userView;
+
+    @Setup
+    public void setUp() {
+        Map<String, Map<String, CommandExecutableDetails>> commandMap = BenchmarkCommands.create();
+        userCommand = commandMap.get("echo").get("alice");
+        adminCommand = commandMap.get("admin").get("manage");
+        CommandIndex commandIndex = new CommandIndex(commandMap);
+        wildcardView = commandIndex.forRoles(wildcardRoles);
+        userView = commandIndex.forRoles(userRoles);
+    }
+
+    @Benchmark
+    public boolean wildcard() {
+        return adminCommand.matchesRole(wildcardRoles);
+    }
+
+    @Benchmark
+    public boolean match() {
+        return userCommand.matchesRole(userRoles);
+    }
+
+    @Benchmark
+    public boolean noMatch() {
+        return adminCommand.matchesRole(userRoles);
+    }
+
+    @Benchmark
+    public boolean indexedWildcard() {
+        return wildcardView.isPermitted(adminCommand);
+    }
+
+    @Benchmark
+    public boolean indexedMatch() {
+        return userView.isPermitted(userCommand);
+    }
+
+    @Benchmark
+    public boolean indexedNoMatch() {
+        return userView.isPermitted(adminCommand);
+    }
+}
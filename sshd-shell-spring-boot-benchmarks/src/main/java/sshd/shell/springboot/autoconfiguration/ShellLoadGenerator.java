@@ -0,0 +1,295 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import com.jcraft.jsch.ChannelShell;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Logger;
+import com.jcraft.jsch.Session;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process load generator opening concurrent JSch sessions against the shell on the loopback interface. Reports
+ * key exchange, authentication, shell open and per-command latency percentiles along with command throughput.
+ * Usage:
+ * <pre>
+ * mvn -pl sshd-shell-spring-boot-benchmarks exec:java \
+ *     -Dexec.mainClass=sshd.shell.springboot.autoconfiguration.ShellLoadGenerator \
+ *     -Dexec.args="--load.sessions=50 --load.commands=100 --load.mix='help=1,load echo hello=9'"
+ * </pre>
+ * The command mix is a comma separated list of command=weight pairs. Any sshd.shell.* property may be passed as well,
+ * e.g. --sshd.shell.transport.type=MINA to compare transports.
+ *
+ * @author anand
+ */
+@SpringBootApplication
+public class ShellLoadGenerator {
+
+    private static final String USERNAME = "load";
+    private static final String PROMPT = "load> ";
+    private static final ThreadLocal<Long> KEY_EXCHANGE_COMPLETED = new ThreadLocal<>();
+
+    public static void main(String... args) throws InterruptedException {
+        SpringApplication application = new SpringApplication(ShellLoadGenerator.class);
+        application.setBannerMode(Banner.Mode.OFF);
+        application.setDefaultProperties(defaultProperties());
+        try (ConfigurableApplicationContext context = application.run(args)) {
+            Environment environment = context.getEnvironment();
+            int sessions = environment.getProperty("load.sessions", Integer.class, 50);
+            int commands = environment.getProperty("load.commands", Integer.class, 100);
+            CommandMix mix = new CommandMix(environment.getProperty("load.mix",
+                    "help=1,health show heapmemory=1,load echo hello=8"));
+            SshdShellProperties.Shell properties = context.getBean(SshdShellProperties.class).getShell();
+            JSch.setLogger(new KeyExchangeLogger());
+            new ShellLoadGenerator().run(properties, sessions, commands, mix);
+        }
+    }
+
+    private static java.util.Properties defaultProperties() {
+        java.util.Properties properties = new java.util.Properties();
+        properties.put("sshd.shell.enabled", "true");
+        properties.put("sshd.shell.port", "0");
+        properties.put("sshd.shell.username", USERNAME);
+        properties.put("sshd.shell.password", USERNAME);
+        properties.put("sshd.shell.hostKeyFile", "target/hostKey.ser");
+        properties.put("sshd.shell.prompt.title", PROMPT.substring(0, PROMPT.length() - 2));
+        properties.put("sshd.shell.session.executor.poolSize", "${load.sessions:50}");
+        return properties;
+    }
+
+    private void run(SshdShellProperties.Shell properties, int sessions, int commands, CommandMix mix)
+            throws InterruptedException {
+        SessionStats[] stats = new SessionStats[sessions];
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch shellsOpened = new CountDownLatch(sessions);
+        AtomicInteger failedSessions = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(sessions);
+        for (int i = 0; i < sessions; i++) {
+            SessionStats sessionStats = stats[i] = new SessionStats(commands);
+            Random random = new Random(i);
+            executor.execute(() -> {
+                try {
+                    runSession(properties, sessionStats, mix, random, start, shellsOpened);
+                } catch (JSchException | IOException | InterruptedException ex) {
+                    failedSessions.incrementAndGet();
+                    System.err.println("Session failed: " + ex);
+                } finally {
+                    shellsOpened.countDown();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        report(properties, stats, failedSessions.get());
+    }
+
+    private void runSession(SshdShellProperties.Shell properties, SessionStats stats, CommandMix mix, Random random,
+            CountDownLatch start, CountDownLatch shellsOpened) throws JSchException, IOException,
+            InterruptedException {
+        Session session = new JSch().getSession(USERNAME, properties.getHost(), properties.getPort());
+        session.setPassword(USERNAME);
+        session.setConfig("StrictHostKeyChecking", "no");
+        session.setConfig("PreferredAuthentications", "password");
+        start.await();
+        try {
+            long connectStart = System.nanoTime();
+            session.connect();
+            long connected = System.nanoTime();
+            stats.keyExchange = KEY_EXCHANGE_COMPLETED.get() - connectStart;
+            stats.authentication = connected - KEY_EXCHANGE_COMPLETED.get();
+            ChannelShell channel = (ChannelShell) session.openChannel("shell");
+            InputStream in = channel.getInputStream();
+            OutputStream out = channel.getOutputStream();
+            channel.connect();
+            awaitPrompt(in);
+            stats.shellOpen = System.nanoTime() - connected;
+            shellsOpened.countDown();
+            shellsOpened.await();
+            stats.commandsStart = System.nanoTime();
+            for (int i = 0; i < stats.commandLatencies.length; i++) {
+                long commandStart = System.nanoTime();
+                out.write((mix.next(random) + "\r").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                awaitPrompt(in);
+                stats.commandLatencies[i] = System.nanoTime() - commandStart;
+                stats.completedCommands++;
+            }
+            stats.commandsEnd = System.nanoTime();
+            channel.disconnect();
+        } finally {
+            session.disconnect();
+        }
+    }
+
+    private static void awaitPrompt(InputStream in) throws IOException {
+        byte[] prompt = PROMPT.getBytes(StandardCharsets.UTF_8);
+        int matched = 0;
+        while (matched < prompt.length) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Channel closed before prompt was received");
+            }
+            matched = b == prompt[matched] ? matched + 1 : (b == prompt[0] ? 1 : 0);
+        }
+    }
+
+    private static void report(SshdShellProperties.Shell properties, SessionStats[] stats, int failedSessions) {
+        List<long[]> phases = new ArrayList<>();
+        long totalCommands = 0;
+        long commandsStart = Long.MAX_VALUE;
+        long commandsEnd = Long.MIN_VALUE;
+        long[] keyExchange = new long[stats.length];
+        long[] authentication = new long[stats.length];
+        long[] shellOpen = new long[stats.length];
+        int completed = 0;
+        for (SessionStats sessionStats : stats) {
+            totalCommands += sessionStats.completedCommands;
+            if (sessionStats.commandsEnd > 0) {
+                keyExchange[completed] = sessionStats.keyExchange;
+                authentication[completed] = sessionStats.authentication;
+                shellOpen[completed] = sessionStats.shellOpen;
+                phases.add(sessionStats.commandLatencies);
+                commandsStart = Math.min(commandsStart, sessionStats.commandsStart);
+                commandsEnd = Math.max(commandsEnd, sessionStats.commandsEnd);
+                completed++;
+            }
+        }
+        long[] commandLatencies = phases.stream().flatMapToLong(Arrays::stream).toArray();
+        System.out.printf("%ntransport: %s, I/O threads: %s%n",
+                Objects.isNull(properties.getTransport().getType()) ? "default" : properties.getTransport().getType(),
+                properties.getTransport().getIoThreads() > 0 ? properties.getTransport().getIoThreads() : "default");
+        System.out.printf("sessions: %d (%d failed), commands: %d%n", stats.length, failedSessions, totalCommands);
+        System.out.printf("%-15s %10s %10s %10s %10s%n", "phase", "p50 (ms)", "p99 (ms)", "p999 (ms)", "max (ms)");
+        printPercentiles("key exchange", Arrays.copyOf(keyExchange, completed));
+        printPercentiles("authentication", Arrays.copyOf(authentication, completed));
+        printPercentiles("shell open", Arrays.copyOf(shellOpen, completed));
+        printPercentiles("command", commandLatencies);
+        if (completed > 0) {
+            System.out.printf("throughput: %.1f commands/s%n",
+                    commandLatencies.length / ((commandsEnd - commandsStart) / 1e9));
+        }
+    }
+
+    private static void printPercentiles(String phase, long[] latencies) {
+        if (latencies.length == 0) {
+            return;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-15s %10.2f %10.2f %10.2f %10.2f%n", phase, percentile(latencies, 0.5),
+                percentile(latencies, 0.99), percentile(latencies, 0.999), latencies[latencies.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sortedLatencies, double percentile) {
+        int rank = (int) Math.ceil(percentile * sortedLatencies.length);
+        return sortedLatencies[Math.max(rank, 1) - 1] / 1e6;
+    }
+
+    private static class SessionStats {
+
+        private final long[] commandLatencies;
+        private long keyExchange;
+        private long authentication;
+        private long shellOpen;
+        private long commandsStart;
+        private long commandsEnd;
+        private int completedCommands;
+
+        SessionStats(int commands) {
+            commandLatencies = new long[commands];
+        }
+    }
+
+    /**
+     * Weighted command mix, e.g. "help=1,load echo hello=9".
+     */
+    private static class CommandMix {
+
+        private final List<String> commands = new ArrayList<>();
+        private final List<Integer> cumulativeWeights = new ArrayList<>();
+        private int totalWeight;
+
+        CommandMix(String mix) {
+            for (String entry : mix.split(",")) {
+                int separator = entry.lastIndexOf('=');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Expected command=weight but was " + entry);
+                }
+                totalWeight += Integer.parseInt(entry.substring(separator + 1).trim());
+                commands.add(entry.substring(0, separator).trim());
+                cumulativeWeights.add(totalWeight);
+            }
+        }
+
+        String next(Random random) {
+            int value = random.nextInt(totalWeight);
+            int i = 0;
+            while (value >= cumulativeWeights.get(i)) {
+                i++;
+            }
+            return commands.get(i);
+        }
+    }
+
+    /**
+     * JSch logs the end of key exchange on the connecting thread, which splits connection setup into key exchange
+     * and authentication.
+     */
+    private static class KeyExchangeLogger implements Logger {
+
+        @Override
+        public boolean isEnabled(int level) {
+            return level == INFO;
+        }
+
+        @Override
+        public void log(int level, String message) {
+            if ("SSH_MSG_NEWKEYS received".equals(message)) {
+                KEY_EXCHANGE_COMPLETED.set(System.nanoTime());
+            }
+        }
+    }
+
+    @Component
+    @SshdShellCommand(value = "load", description = "Load generator commands")
+    public static class LoadCommand {
+
+        @SshdShellCommand(value = "echo", description = "Echo argument. Usage: load echo <arg>")
+        public String echo(String arg) {
+            return arg;
+        }
+    }
+}
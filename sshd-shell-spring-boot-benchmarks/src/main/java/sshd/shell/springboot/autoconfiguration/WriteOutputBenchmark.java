@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.ansi.AnsiColor;
+import org.springframework.boot.ansi.AnsiOutput;
+
+/**
+ * Cost of SshSessionContext.writeOutput per line, with and without ANSI colour encoding and buffered output.
+ *
+ * @author anand
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteOutputBenchmark {
+
+    @Param({"NEVER", "ALWAYS"})
+    private AnsiOutput.Enabled ansi;
+    @Param({"false", "true"})
+    private boolean buffered;
+    private SshSessionExecutor scheduler;
+    private final String line = "2017-08-01 10:00:00.000  INFO 1234 --- [main] demo.Main : Started Main in 3.2 seconds";
+
+    @Setup
+    public void setUp() {
+        AnsiOutput.setEnabled(ansi);
+        Writer out = new OutputStreamWriter(new NullOutputStream(), StandardCharsets.UTF_8);
+        if (buffered) {
+            scheduler = new SshSessionExecutor(new SshdShellProperties.Shell.Session.Executor(),
+                    new SshdShellProperties.Shell.Jobs());
+            out = new CoalescingWriter(out, new SshdShellProperties.Shell.Output(), scheduler);
+        }
+        SshSessionContext.put(SshSessionContext.WRITER, new PrintWriter(out));
+        SshSessionContext.put(SshSessionContext.TEXT_COLOR, AnsiColor.BLUE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SshSessionContext.clear();
+        if (buffered) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void writeOutput() {
+        SshSessionContext.writeOutput(line);
+    }
+}
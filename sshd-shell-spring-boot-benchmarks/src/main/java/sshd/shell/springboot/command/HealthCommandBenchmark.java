@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.command;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import sshd.shell.springboot.autoconfiguration.SshdShellProperties;
+
+/**
+ * Cost of HealthCommand.show for an indicator with constant details, i.e. lookup, hand off to the health executor and
+ * JSON serialization.
+ *
+ * @author anand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HealthCommandBenchmark {
+
+    private final HealthCommand healthCommand = new HealthCommand(
+            Collections.<HealthIndicator>singletonList(new ConstantHealthIndicator()), new SshdShellProperties());
+
+    @TearDown
+    public void tearDown() {
+        healthCommand.shutdown();
+    }
+
+    @Benchmark
+    public String show() throws JsonProcessingException, InterruptedException {
+        return healthCommand.show("constant");
+    }
+
+    static class ConstantHealthIndicator implements HealthIndicator {
+
+        private final Health health = Health.up().withDetail("used", 512).withDetail("free", 512)
+                .withDetail("total", 1024).withDetail("max", 2048).build();
+
+        @Override
+        public Health health() {
+            return health;
+        }
+    }
+}
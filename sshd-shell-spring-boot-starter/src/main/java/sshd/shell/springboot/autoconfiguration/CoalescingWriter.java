@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writer coalescing the output of a session. Flushes are deferred until either the buffer is full or the flush
+ * interval has elapsed since the first deferred flush, so commands writing line by line produce a few large SSH
+ * packets instead of one per line. Pending output must be drained before the session reads input so that it is not
+ * overtaken by the prompt.
+ *
+ * @author anand
+ */
+@lombok.extern.slf4j.Slf4j
+class CoalescingWriter extends Writer {
+
+    private final Writer out;
+    private final char[] buffer;
+    private final long flushInterval;
+    private final SshSessionExecutor scheduler;
+    private int count;
+    private boolean flushScheduled;
+
+    CoalescingWriter(Writer out, SshdShellProperties.Shell.Output properties, SshSessionExecutor scheduler) {
+        this.out = out;
+        this.buffer = new char[properties.getBufferSize()];
+        this.flushInterval = properties.getFlushInterval().toNanos();
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public synchronized void write(char[] cbuf, int off, int len) throws IOException {
+        if (count + len > buffer.length) {
+            writeBuffer();
+            if (len >= buffer.length) {
+                out.write(cbuf, off, len);
+                out.flush();
+                return;
+            }
+            out.flush();
+        }
+        System.arraycopy(cbuf, off, buffer, count, len);
+        count += len;
+    }
+
+    @Override
+    public synchronized void write(String str, int off, int len) throws IOException {
+        if (count + len > buffer.length) {
+            writeBuffer();
+            if (len >= buffer.length) {
+                out.write(str, off, len);
+                out.flush();
+                return;
+            }
+            out.flush();
+        }
+        str.getChars(off, off + len, buffer, count);
+        count += len;
+    }
+
+    /**
+     * Defers the flush by at most the flush interval.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (count == 0 || flushScheduled) {
+            return;
+        }
+        if (flushInterval <= 0) {
+            drain();
+            return;
+        }
+        flushScheduled = true;
+        scheduler.scheduleFlush(this::scheduledDrain, flushInterval, TimeUnit.NANOSECONDS);
+    }
+
+    synchronized void drain() throws IOException {
+        writeBuffer();
+        out.flush();
+    }
+
+    private synchronized void scheduledDrain() {
+        flushScheduled = false;
+        if (count > 0) {
+            try {
+                drain();
+            } catch (IOException ex) {
+                log.debug("Unable to flush session output: {}", ex.getMessage());
+            }
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Drains pending output. The underlying writer belongs to the console reader and is not closed.
+     * @throws IOException if any
+     */
+    @Override
+    public void close() throws IOException {
+        drain();
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import sshd.shell.springboot.autoconfiguration.CommandExecutionListener.Outcome;
+
+/**
+ * Resolves a command line against the command index, checks the session's permissions and writes the command's
+ * output. Shared by interactive shell sessions and exec requests, the latter reporting the returned exit status.
+ * Several commands separated by ';' are executed in one go, each command's output framed by a header and a trailer
+ * carrying its exit status so that scripts can demultiplex the results of a single round trip. Output may be piped
+ * through the built-in {@link OutputFilters} with '|'. A command line ending with '&' runs as a background job of the
+ * session's {@link JobControl}. Executions of commands are reported to {@link CommandExecutionListener}s, if any.
+ *
+ * @author anand
+ */
+@lombok.extern.slf4j.Slf4j
+class CommandDispatcher {
+
+    static final int EXIT_SUCCESS = 0;
+    static final int EXIT_FAILURE = 1;
+    static final int EXIT_USAGE = 2;
+    static final int EXIT_PERMISSION_DENIED = 126;
+    static final int EXIT_UNKNOWN_COMMAND = 127;
+    static final String SUPPORTED_COMMANDS_MESSAGE = "Enter '" + Constants.HELP
+            + "' for a list of supported commands";
+    private static final String UNSUPPORTED_COMMANDS_MESSAGE = "Unknown command. " + SUPPORTED_COMMANDS_MESSAGE;
+    private static final String PERMISSION_DENIED_MESSAGE = "Permission denied";
+
+    private static final Pattern BATCH_SEPARATOR = Pattern.compile("(?<!\\\\);");
+    private static final String ESCAPED_BATCH_SEPARATOR = "\\;";
+    private static final Pattern PIPE = Pattern.compile("(?<!\\\\)\\|");
+    private static final String ESCAPED_PIPE = "\\|";
+    private static final Pattern BACKGROUND = Pattern.compile("(?<!\\\\)&$");
+    private static final String ESCAPED_BACKGROUND = "\\&";
+    private final CommandIndex commandIndex;
+    private final List<CommandExecutionListener> listeners;
+
+    CommandDispatcher(CommandIndex commandIndex) {
+        this(commandIndex, Collections.emptyList());
+    }
+
+    CommandDispatcher(CommandIndex commandIndex, List<CommandExecutionListener> listeners) {
+        this.commandIndex = commandIndex;
+        this.listeners = listeners;
+    }
+
+    boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Executes a command line of the form 'command [subcommand [argument]]', or 'command [argument]' for commands
+     * without subcommands, or several of them separated by ';', in the current session context, optionally piping
+     * each command's output through filters, e.g. 'cmd | grep foo | head 20'. A literal ';', '|' or '&' within a
+     * command is written as '\;', '\|' or '\&'. A trailing '&' starts the whole command line as a background job
+     * instead.
+     * @param userInput trimmed command line
+     * @return exit status of the last command, 0 on success, 1 if the command failed or reported a usage error, if job
+     * control is not available or a job cannot be started, 2 for invalid filters, 126 if permission is denied and 127
+     * for unknown commands
+     * @throws InterruptedException if the session is terminated while a command is executing
+     */
+    int dispatch(String userInput) throws InterruptedException {
+        if (BACKGROUND.matcher(userInput).find()) {
+            return background(userInput.substring(0, userInput.length() - 1).trim());
+        }
+        if (userInput.indexOf(';') < 0) {
+            return execute(userInput);
+        }
+        List<String> commands = Arrays.stream(BATCH_SEPARATOR.split(userInput))
+                .map(command -> command.replace(ESCAPED_BATCH_SEPARATOR, ";").trim())
+                .filter(command -> !command.isEmpty()).collect(Collectors.toList());
+        if (commands.size() == 1) {
+            return execute(commands.get(0));
+        }
+        int exitStatus = EXIT_SUCCESS;
+        for (int i = 0; i < commands.size(); i++) {
+            String frame = "[" + (i + 1) + "/" + commands.size() + "]";
+            SshSessionContext.writeOutput(">>> " + frame + " " + commands.get(i));
+            exitStatus = execute(commands.get(i));
+            SshSessionContext.writeOutput("<<< " + frame + " exit " + exitStatus);
+        }
+        return exitStatus;
+    }
+
+    private static int background(String commandLine) {
+        JobControl jobControl = SshSessionContext.current().jobControl;
+        if (Objects.isNull(jobControl)) {
+            SshSessionContext.writeOutput(JobControl.UNSUPPORTED_MESSAGE);
+            return EXIT_FAILURE;
+        }
+        try {
+            SshSessionContext.writeOutput(jobControl.submit(commandLine));
+            return EXIT_SUCCESS;
+        } catch (IllegalStateException ex) {
+            SshSessionContext.writeOutput(ex.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    private int execute(String userInput) throws InterruptedException {
+        String[] stages = PIPE.split(userInput, -1);
+        List<UnaryOperator<Stream<String>>> filters = new ArrayList<>(stages.length - 1);
+        try {
+            for (int i = 1; i < stages.length; i++) {
+                filters.add(OutputFilters.parse(unescape(stages[i])));
+            }
+        } catch (IllegalArgumentException ex) {
+            SshSessionContext.writeOutput(ex.getMessage());
+            return EXIT_USAGE;
+        }
+        return execute(unescape(stages[0]).trim(), filters);
+    }
+
+    private static String unescape(String stage) {
+        return stage.replace(ESCAPED_PIPE, "|").replace(ESCAPED_BACKGROUND, "&");
+    }
+
+    private int execute(String userInput, List<UnaryOperator<Stream<String>>> filters)
+            throws InterruptedException {
+        String[] part = userInput.split(" ", 3);
+        String command = part[0];
+        Map<String, CommandExecutableDetails> commandExecutables = commandIndex.getCommand(command);
+        if (Objects.isNull(commandExecutables)) {
+            SshSessionContext.writeOutput(UNSUPPORTED_COMMANDS_MESSAGE);
+            return EXIT_UNKNOWN_COMMAND;
+        }
+        CommandExecutableDetails ced = commandExecutables.get(Constants.EXECUTE);
+        CommandIndex.View commandView = SshSessionContext.current().commandView;
+        if (!commandView.isPermitted(ced)) {
+            notifyListeners(command, null, Outcome.PERMISSION_DENIED, 0, 0);
+            SshSessionContext.writeOutput(PERMISSION_DENIED_MESSAGE);
+            return EXIT_PERMISSION_DENIED;
+        }
+        if (part.length < 2) {
+            if (Objects.isNull(ced.getCommandExecutor())) {
+                writeCommandOutput(commandView.getSubcommands(command), filters);
+            } else {
+                return invoke(command, null, ced, null, filters);
+            }
+        } else if (commandExecutables.containsKey(part[1])) {
+            String subCommand = part[1];
+            ced = commandExecutables.get(subCommand);
+            if (!commandView.isPermitted(ced)) {
+                notifyListeners(command, subCommand, Outcome.PERMISSION_DENIED, 0, 0);
+                SshSessionContext.writeOutput(PERMISSION_DENIED_MESSAGE);
+                return EXIT_PERMISSION_DENIED;
+            }
+            return invoke(command, subCommand, ced, part.length == 2 ? null : part[2], filters);
+        } else if (commandExecutables.size() == 1 && Objects.nonNull(ced.getCommandExecutor())) {
+            return invoke(command, null, ced, userInput.substring(command.length()).trim(), filters);
+        } else {
+            SshSessionContext.writeOutput("Unknown sub command '" + part[1] + "'. Type '" + part[0]
+                    + " help' for more information");
+            return EXIT_UNKNOWN_COMMAND;
+        }
+        return EXIT_SUCCESS;
+    }
+
+    /**
+     * Runs a command method, failing with exit status 1 if it threw or marked itself as failed.
+     */
+    private int invoke(String command, String subcommand, CommandExecutableDetails ced, String arg,
+            List<UnaryOperator<Stream<String>>> filters) throws InterruptedException {
+        SshSessionState state = SshSessionContext.current();
+        state.failed = false;
+        if (listeners.isEmpty()) {
+            Object output = ced.getCommandExecutor().get(arg);
+            writeCommandOutput(output, filters);
+            return exitStatus(output, state);
+        }
+        CountingWriter outputCounter = state.outputCounter;
+        long outputBefore = Objects.isNull(outputCounter) ? 0 : outputCounter.getCount();
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            Object output = ced.getCommandExecutor().get(arg);
+            writeCommandOutput(output, filters);
+            int exitStatus = exitStatus(output, state);
+            outcome = exitStatus == EXIT_SUCCESS ? Outcome.SUCCESS : Outcome.ERROR;
+            return exitStatus;
+        } catch (InterruptedException ex) {
+            outcome = Outcome.INTERRUPTED;
+            throw ex;
+        } finally {
+            notifyListeners(command, subcommand, outcome, System.nanoTime() - start,
+                    Objects.isNull(outputCounter) ? 0 : outputCounter.getCount() - outputBefore);
+        }
+    }
+
+    private static int exitStatus(Object output, SshSessionState state) {
+        return output instanceof MethodHandleCommandExecutor.Failure || state.failed ? EXIT_FAILURE : EXIT_SUCCESS;
+    }
+
+    private void notifyListeners(String command, String subcommand, Outcome outcome, long durationNanos,
+            long outputCharacters) {
+        for (CommandExecutionListener listener : listeners) {
+            try {
+                listener.commandExecuted(command, subcommand, outcome, durationNanos, outputCharacters);
+            } catch (RuntimeException ex) {
+                log.warn("Command execution listener {} failed", listener, ex);
+            }
+        }
+    }
+
+    private static void writeCommandOutput(Object output, List<UnaryOperator<Stream<String>>> filters)
+            throws InterruptedException {
+        if (filters.isEmpty()) {
+            SshSessionContext.writeCommandOutput(output);
+            return;
+        }
+        Stream<String> lines = OutputFilters.lines(output);
+        for (UnaryOperator<Stream<String>> filter : filters) {
+            lines = filter.apply(lines);
+        }
+        SshSessionContext.writeCommandOutput(lines);
+    }
+}
@@ -28,6 +28,7 @@ import org.springframework.util.CollectionUtils;
  */
 public class CommandExecutableDetails {
     
+    @lombok.Getter(lombok.AccessLevel.PACKAGE)
     private final Set<String> roles;
     @lombok.Getter
     private final String description;
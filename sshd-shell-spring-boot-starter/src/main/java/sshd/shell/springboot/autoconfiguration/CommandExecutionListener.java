@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+/**
+ * Notified of every command resolved against the command index, e.g. to record metrics. Beans implementing this
+ * interface are picked up automatically. Listeners are called on the thread that executed the command and should
+ * return quickly.
+ *
+ * @author anand
+ */
+@FunctionalInterface
+public interface CommandExecutionListener {
+
+    enum Outcome {
+        SUCCESS,
+        ERROR,
+        PERMISSION_DENIED,
+        INTERRUPTED
+    }
+
+    /**
+     * @param command command name
+     * @param subcommand subcommand name or null for the command itself
+     * @param outcome outcome, ERROR if the command method threw an exception
+     * @param durationNanos time taken to execute the command and write its output, 0 if permission was denied
+     * @param outputCharacters characters of output written, after filters
+     */
+    void commandExecuted(String command, String subcommand, Outcome outcome, long durationNanos,
+            long outputCharacters);
+}
@@ -19,11 +19,13 @@
 package sshd.shell.springboot.autoconfiguration;
 
 /**
+ * Executes a command. The output is either text or, for output written as it is produced, a Stream, Iterable or
+ * Iterator of lines.
  *
  * @author anand
  */
 @FunctionalInterface
 interface CommandExecutor {
     
-    String get(String arg) throws InterruptedException;
+    Object get(String arg) throws InterruptedException;
 }
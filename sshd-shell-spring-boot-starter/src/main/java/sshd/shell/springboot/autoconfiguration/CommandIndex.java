@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable index of shell commands built at startup. Every role declared by a command is assigned a bit so that
+ * role checks are bitset intersections, and the help and subcommand listings visible to a distinct set of user roles
+ * are rendered once when a session with that role set logs in.
+ *
+ * @author anand
+ */
+public class CommandIndex {
+
+    private static final String ANY_ROLE = "*";
+    private static final int ANY_ROLE_BIT = 0;
+    private final Map<String, Map<String, CommandExecutableDetails>> commands;
+    private final Map<String, Integer> roleBits = new HashMap<>();
+    private final Map<CommandExecutableDetails, BitSet> commandMasks = new IdentityHashMap<>();
+    private final ConcurrentMap<BitSet, View> views = new ConcurrentHashMap<>();
+
+    CommandIndex(Map<String, Map<String, CommandExecutableDetails>> commandMap) {
+        commands = Collections.unmodifiableMap(new LinkedHashMap<>(commandMap));
+        roleBits.put(ANY_ROLE, ANY_ROLE_BIT);
+        commandMap.values().forEach(commandExecutables -> commandExecutables.values()
+                .forEach(ced -> commandMasks.put(ced, commandMask(ced))));
+    }
+
+    private BitSet commandMask(CommandExecutableDetails ced) {
+        BitSet mask = new BitSet();
+        ced.getRoles().forEach(role -> mask.set(roleBits.computeIfAbsent(role, r -> roleBits.size())));
+        return mask;
+    }
+
+    /**
+     * Command and its subcommands keyed by subcommand name, with the class level command under Constants.EXECUTE.
+     * @param command command name
+     * @return command executables or null if command does not exist
+     */
+    public Map<String, CommandExecutableDetails> getCommand(String command) {
+        return commands.get(command);
+    }
+
+    /**
+     * Commands visible to the given user roles. Roles not declared by any command are ignored, so sessions with
+     * equivalent role sets share the same view.
+     * @param userRoles user roles
+     * @return view of commands
+     */
+    public View forRoles(Collection<String> userRoles) {
+        BitSet userMask = new BitSet();
+        userMask.set(ANY_ROLE_BIT);
+        if (Objects.nonNull(userRoles)) {
+            if (userRoles.contains(ANY_ROLE)) {
+                userMask.set(0, roleBits.size());
+            } else {
+                userRoles.forEach(role -> {
+                    Integer bit = roleBits.get(role);
+                    if (Objects.nonNull(bit)) {
+                        userMask.set(bit);
+                    }
+                });
+            }
+        }
+        return views.computeIfAbsent(userMask, View::new);
+    }
+
+    public final class View {
+
+        private final BitSet userMask;
+        private final String help;
+        private final Map<String, String> subcommands = new HashMap<>();
+
+        private View(BitSet userMask) {
+            this.userMask = userMask;
+            StringBuilder sb = new StringBuilder("Supported Commands");
+            commands.forEach((command, commandExecutables) -> {
+                CommandExecutableDetails ced = commandExecutables.get(Constants.EXECUTE);
+                if (isPermitted(ced)) {
+                    sb.append("\n\r").append(command).append("\t\t").append(ced.getDescription());
+                    subcommands.put(command, renderSubcommands(command, commandExecutables));
+                }
+            });
+            help = sb.toString();
+        }
+
+        private String renderSubcommands(String command, Map<String, CommandExecutableDetails> commandExecutables) {
+            StringBuilder sb = new StringBuilder("Supported subcommand for ").append(command);
+            commandExecutables.forEach((subcommand, ced) -> {
+                if (!subcommand.equals(Constants.EXECUTE) && isPermitted(ced)) {
+                    sb.append("\n\r").append(subcommand).append("\t\t").append(ced.getDescription());
+                }
+            });
+            return sb.toString();
+        }
+
+        public boolean isPermitted(CommandExecutableDetails ced) {
+            return commandMasks.get(ced).intersects(userMask);
+        }
+
+        public String getHelp() {
+            return help;
+        }
+
+        /**
+         * Subcommand listing of a command visible to this view.
+         * @param command command name
+         * @return listing or null if command is not visible
+         */
+        public String getSubcommands(String command) {
+            return subcommands.get(command);
+        }
+    }
+}
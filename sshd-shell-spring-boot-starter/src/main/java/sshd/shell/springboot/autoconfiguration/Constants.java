@@ -25,4 +25,6 @@ public enum Constants {
     public static final String HELP = "help";
     public static final String USER_ROLES = "__userRoles";
     public static final String EXECUTE = "__execute";
+    public static final String COMMAND_VIEW = "__commandView";
+    public static final String JOB_CONTROL = "__jobControl";
 }
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Background jobs of a shell session. A command line ending with '&' runs on the shared job pool with a copy of the
+ * session context while the session carries on; its output is captured, up to a limit, and shown once the job is
+ * brought to the foreground. Jobs are kept until they are brought to the foreground or killed, and the ones still
+ * running when the session ends are cancelled.
+ *
+ * @author anand
+ */
+@lombok.extern.slf4j.Slf4j
+public class JobControl {
+
+    public static final String UNSUPPORTED_MESSAGE = "Job control is only supported in shell sessions";
+    private static final String KILLED = "Killed";
+    private static final String LINE_SEPARATOR = "\n\r";
+
+    private final CommandDispatcher commandDispatcher;
+    private final SshSessionExecutor sessionExecutor;
+    private final SshdShellProperties.Shell.Jobs properties;
+    private final NavigableMap<Integer, Job> jobs = new ConcurrentSkipListMap<>();
+    private final Queue<Job> finished = new ConcurrentLinkedQueue<>();
+    private int lastId;
+
+    JobControl(CommandDispatcher commandDispatcher, SshSessionExecutor sessionExecutor,
+            SshdShellProperties.Shell.Jobs properties) {
+        this.commandDispatcher = commandDispatcher;
+        this.sessionExecutor = sessionExecutor;
+        this.properties = properties;
+    }
+
+    /**
+     * Output of job control in sessions without it, e.g. exec requests, marking the command as failed.
+     * @return {@link #UNSUPPORTED_MESSAGE}
+     */
+    public static String unsupported() {
+        SshSessionContext.markFailed();
+        return UNSUPPORTED_MESSAGE;
+    }
+
+    /**
+     * Starts a command line as a background job of the current session.
+     * @param commandLine command line without the trailing '&'
+     * @return job number and command line
+     * @throws IllegalStateException if the session or the server has too many jobs
+     */
+    String submit(String commandLine) {
+        if (jobs.size() >= properties.getMaxPerSession()) {
+            throw new IllegalStateException("Too many jobs, release finished jobs with 'fg' or 'kill'");
+        }
+        Job job = new Job(lastId + 1, commandLine, SshSessionContext.current().copy());
+        try {
+            job.future = sessionExecutor.submitJob(SshSessionContext.wrap(job, job.context));
+        } catch (RejectedExecutionException ex) {
+            throw new IllegalStateException("Too many background jobs running, please try again later");
+        }
+        lastId = job.id;
+        jobs.put(job.id, job);
+        return "[" + job.id + "] " + commandLine;
+    }
+
+    /**
+     * Lists the jobs of the session with their status.
+     * @return one line per job
+     */
+    public String list() {
+        if (jobs.isEmpty()) {
+            return "No jobs";
+        }
+        return jobs.values().stream().map(Job::toString).collect(Collectors.joining(LINE_SEPARATOR));
+    }
+
+    /**
+     * Waits for a job to finish and releases it. The job is killed if the wait is interrupted, e.g. by Ctrl-C.
+     * @param id job number, optionally prefixed with '%', or null for the most recent job
+     * @return command line and captured output of the job
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public String foreground(String id) throws InterruptedException {
+        Job job = find(id);
+        if (Objects.isNull(job)) {
+            return noSuchJob(id);
+        }
+        try {
+            job.future.get();
+        } catch (InterruptedException ex) {
+            kill(job);
+            throw ex;
+        } catch (CancellationException | ExecutionException ex) {
+            log.debug("Job {} did not complete", job, ex);
+        }
+        jobs.remove(job.id);
+        String output = job.output.toString().replaceAll("[\r\n]+$", "");
+        return output.isEmpty() ? job.commandLine : job.commandLine + LINE_SEPARATOR + output;
+    }
+
+    /**
+     * Cancels a job, interrupting it if it is running, and releases it.
+     * @param id job number, optionally prefixed with '%'
+     * @return status of the job
+     */
+    public String kill(String id) {
+        if (Objects.isNull(id)) {
+            SshSessionContext.markFailed();
+            return "Usage: kill <job number>";
+        }
+        Job job = find(id);
+        if (Objects.isNull(job)) {
+            return noSuchJob(id);
+        }
+        kill(job);
+        return job.toString();
+    }
+
+    private void kill(Job job) {
+        jobs.remove(job.id);
+        if (job.future.cancel(true)) {
+            job.status = KILLED;
+        }
+    }
+
+    private Job find(String id) {
+        if (Objects.isNull(id)) {
+            Map.Entry<Integer, Job> last = jobs.lastEntry();
+            return Objects.isNull(last) ? null : last.getValue();
+        }
+        try {
+            return jobs.get(Integer.valueOf(id.trim().replaceFirst("^%", "")));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static String noSuchJob(String id) {
+        SshSessionContext.markFailed();
+        return Objects.isNull(id) ? "No jobs" : "No such job: " + id;
+    }
+
+    /**
+     * Status lines of jobs that finished since the last call, shown before the next prompt.
+     */
+    List<String> notices() {
+        List<String> notices = new ArrayList<>();
+        for (Job job = finished.poll(); Objects.nonNull(job); job = finished.poll()) {
+            if (jobs.get(job.id) == job) {
+                notices.add(job.toString());
+            }
+        }
+        return notices;
+    }
+
+    void cancelAll() {
+        jobs.values().forEach(job -> job.future.cancel(true));
+        jobs.clear();
+    }
+
+    private class Job implements Runnable {
+
+        private final int id;
+        private final String commandLine;
+        private final SshSessionState context;
+        private final CapturedOutput output = new CapturedOutput(properties.getOutputLimit());
+        private final PrintWriter writer;
+        private volatile Future<?> future;
+        private volatile String status = "Running";
+
+        /**
+         * @param context copy of the session's state, detached from the terminal and from job control
+         */
+        Job(int id, String commandLine, SshSessionState context) {
+            this.id = id;
+            this.commandLine = commandLine;
+            this.context = context;
+            context.outputCounter = commandDispatcher.hasListeners() ? new CountingWriter(output) : null;
+            writer = new PrintWriter(Objects.isNull(context.outputCounter) ? output : context.outputCounter);
+            context.consoleReader = null;
+            context.outputBuffer = null;
+            context.jobControl = null;
+            context.writer = writer;
+            context.outputLock = new Object();
+            context.textColorPrefix = "";
+        }
+
+        @Override
+        public void run() {
+            String result = "Failed";
+            try {
+                int exitStatus = commandDispatcher.dispatch(commandLine);
+                result = exitStatus == CommandDispatcher.EXIT_SUCCESS ? "Done" : "Exit " + exitStatus;
+            } catch (InterruptedException ex) {
+                result = KILLED;
+            } catch (RuntimeException ex) {
+                writer.println(MethodHandleCommandExecutor.getErrorInfo(ex));
+            } finally {
+                writer.flush();
+                status = result;
+                finished.add(this);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%d]  %-8s %s", id, status, commandLine);
+        }
+    }
+
+    /**
+     * Keeps the first characters of a job's output, noting whether anything was dropped.
+     */
+    private static class CapturedOutput extends Writer {
+
+        private final StringBuilder buffer = new StringBuilder();
+        private final int limit;
+        private boolean truncated;
+
+        CapturedOutput(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(char[] cbuf, int off, int len) {
+            int captured = Math.min(len, limit - buffer.length());
+            buffer.append(cbuf, off, captured);
+            truncated |= captured < len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public synchronized String toString() {
+            return truncated ? buffer + LINE_SEPARATOR + "[Output truncated at " + limit + " characters]"
+                    : buffer.toString();
+        }
+    }
+}
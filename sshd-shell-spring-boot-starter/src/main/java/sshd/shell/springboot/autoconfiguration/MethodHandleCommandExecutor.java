@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Method;
+
+/**
+ * Command executor invoking the command method through a method handle bound to the command bean at startup. Unlike
+ * Method.invoke, a call neither allocates an argument array nor repeats access checks, and exceptions thrown by the
+ * command method are not wrapped.
+ *
+ * @author anand
+ */
+@lombok.extern.slf4j.Slf4j
+class MethodHandleCommandExecutor implements CommandExecutor {
+
+    private static final MethodType COMMAND_TYPE = MethodType.methodType(Object.class, String.class);
+    private final MethodHandle handle;
+
+    MethodHandleCommandExecutor(Method method, Object obj) {
+        method.setAccessible(true);
+        try {
+            handle = MethodHandles.lookup().unreflect(method).bindTo(obj).asType(COMMAND_TYPE);
+        } catch (IllegalAccessException | ClassCastException | IllegalArgumentException
+                | WrongMethodTypeException ex) {
+            throw new IllegalStateException("Unable to link command method " + method, ex);
+        }
+    }
+
+    @Override
+    public Object get(String arg) throws InterruptedException {
+        try {
+            return (Object) handle.invokeExact(arg);
+        } catch (InterruptedException ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            return new Failure(getErrorInfo(ex));
+        }
+    }
+
+    /**
+     * Output of a command method that threw an exception, shown as the error information.
+     */
+    @lombok.AllArgsConstructor
+    static final class Failure {
+
+        private final String errorInfo;
+
+        @Override
+        public String toString() {
+            return errorInfo;
+        }
+    }
+
+    static String getErrorInfo(Throwable ex) {
+        log.error("Error performing method invocation", ex);
+        return "Error performing method invocation\r\n" + (log.isDebugEnabled() ? ex
+                : "Please check server logs for more information");
+    }
+}
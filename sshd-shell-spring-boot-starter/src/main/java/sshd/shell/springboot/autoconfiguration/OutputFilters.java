@@ -0,0 +1,211 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Built-in filters applied to command output piped with '|', e.g. 'health all | grep UP | head 5'. Filters are lazy
+ * stream stages, so output is filtered as the command produces it and 'head' stops pulling lines from the command
+ * once it has enough of them. Only 'tail', 'wc' and 'sort' consume the entire output before producing lines.
+ *
+ * @author anand
+ */
+enum OutputFilters {
+
+    ;
+
+    private static final Pattern LINE_BREAK = Pattern.compile("\r?\n\r?");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int DEFAULT_LINES = 10;
+
+    /**
+     * Parses a filter such as 'grep -v -i pattern', 'head 20', 'tail -n 5', 'wc -l' or 'sort -r -n'.
+     * @param filter filter with its arguments
+     * @return stream stage applying the filter
+     * @throws IllegalArgumentException if the filter is unknown or its arguments are invalid
+     */
+    static UnaryOperator<Stream<String>> parse(String filter) {
+        String[] part = filter.trim().split("\\s+", 2);
+        String[] args = part.length < 2 ? new String[0] : WHITESPACE.split(part[1]);
+        switch (part[0]) {
+            case "grep":
+                return grep(args);
+            case "head":
+                long head = lineCount(args);
+                return lines -> lines.limit(head);
+            case "tail":
+                int tail = (int) Math.min(lineCount(args), Integer.MAX_VALUE); // Clamped, not wrapped
+                return lines -> deferred(lines, upstream -> tail(upstream, tail));
+            case "wc":
+                return wc(args);
+            case "sort":
+                return sort(args);
+            default:
+                throw new IllegalArgumentException("Unknown filter '" + part[0] + "'. Supported filters are grep, "
+                        + "head, tail, wc and sort");
+        }
+    }
+
+    /**
+     * Lines of command output as returned by a command method.
+     * @param output String, Stream, Iterable or Iterator output
+     * @return lines
+     */
+    static Stream<String> lines(Object output) {
+        if (output instanceof Stream) {
+            return ((Stream<?>) output).map(String::valueOf);
+        } else if (output instanceof Iterable) {
+            return StreamSupport.stream(((Iterable<?>) output).spliterator(), false).map(String::valueOf);
+        } else if (output instanceof Iterator) {
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize((Iterator<?>) output,
+                    Spliterator.ORDERED), false).map(String::valueOf);
+        }
+        return LINE_BREAK.splitAsStream(String.valueOf(output));
+    }
+
+    private static UnaryOperator<Stream<String>> grep(String[] args) {
+        boolean invert = false;
+        int flags = 0;
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("-"); i++) {
+            switch (args[i]) {
+                case "-v":
+                    invert = true;
+                    break;
+                case "-i":
+                    flags |= Pattern.CASE_INSENSITIVE;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported grep option " + args[i]);
+            }
+        }
+        if (i == args.length) {
+            throw new IllegalArgumentException("Usage: grep [-v] [-i] <pattern>");
+        }
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(String.join(" ", Arrays.copyOfRange(args, i, args.length)), flags);
+        } catch (PatternSyntaxException ex) {
+            throw new IllegalArgumentException("Invalid grep pattern: " + ex.getDescription());
+        }
+        boolean match = !invert;
+        return lines -> lines.filter(line -> pattern.matcher(line).find() == match);
+    }
+
+    private static long lineCount(String[] args) {
+        try {
+            if (args.length == 0) {
+                return DEFAULT_LINES;
+            } else if (args.length == 2 && "-n".equals(args[0])) {
+                return Math.max(0, Long.parseLong(args[1]));
+            } else if (args.length == 1) {
+                return Math.max(0, Math.abs(Long.parseLong(args[0])));
+            }
+        } catch (NumberFormatException ex) {
+            // Handled below
+        }
+        throw new IllegalArgumentException("Usage: head|tail [[-n] <lines>]");
+    }
+
+    private static Stream<String> tail(Stream<String> lines, int count) {
+        Deque<String> tail = new ArrayDeque<>(Math.min(count, 1024));
+        if (count > 0) {
+            lines.forEachOrdered(line -> {
+                if (tail.size() == count) {
+                    tail.removeFirst();
+                }
+                tail.addLast(line);
+            });
+        }
+        return tail.stream();
+    }
+
+    private static UnaryOperator<Stream<String>> wc(String[] args) {
+        if (args.length > 1 || (args.length == 1 && !args[0].matches("-[lwc]"))) {
+            throw new IllegalArgumentException("Usage: wc [-l|-w|-c]");
+        }
+        String option = args.length == 0 ? "" : args[0];
+        return lines -> deferred(lines, upstream -> {
+            long[] counts = new long[3];
+            upstream.forEachOrdered(line -> {
+                counts[0]++;
+                String trimmed = line.trim();
+                counts[1] += trimmed.isEmpty() ? 0 : WHITESPACE.split(trimmed).length;
+                counts[2] += line.length() + 1;
+            });
+            switch (option) {
+                case "-l":
+                    return Stream.of(String.valueOf(counts[0]));
+                case "-w":
+                    return Stream.of(String.valueOf(counts[1]));
+                case "-c":
+                    return Stream.of(String.valueOf(counts[2]));
+                default:
+                    return Stream.of(counts[0] + " " + counts[1] + " " + counts[2]);
+            }
+        });
+    }
+
+    private static UnaryOperator<Stream<String>> sort(String[] args) {
+        Comparator<String> comparator = Comparator.naturalOrder();
+        boolean reverse = false;
+        for (String arg : args) {
+            switch (arg) {
+                case "-r":
+                    reverse = true;
+                    break;
+                case "-n":
+                    comparator = Comparator.comparingDouble(OutputFilters::leadingNumber);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Usage: sort [-r] [-n]");
+            }
+        }
+        Comparator<String> order = reverse ? comparator.reversed() : comparator;
+        return lines -> lines.sorted(order);
+    }
+
+    private static double leadingNumber(String line) {
+        String[] token = WHITESPACE.split(line.trim(), 2);
+        try {
+            return Double.parseDouble(token[0]);
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Stage consuming its upstream only once its own output is requested. Closing the stage closes the upstream and
+     * thereby the command's stream.
+     */
+    private static Stream<String> deferred(Stream<String> upstream,
+            Function<Stream<String>, Stream<String>> stage) {
+        return Stream.of(upstream).flatMap(stage).onClose(upstream::close);
+    }
+}
@@ -20,6 +20,7 @@ import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.function.Function;
 import javax.annotation.PostConstruct;
 import org.springframework.boot.Banner;
@@ -32,15 +33,19 @@ import org.springframework.core.io.ResourceLoader;
 import org.springframework.util.StringUtils;
 
 /**
+ * Shell banner composed of the image and text banners of the application. As the banners only depend on the
+ * application environment, they are rendered once on first login and the resulting bytes are written to every
+ * subsequent session.
  *
  * @author anand
  */
-@lombok.AllArgsConstructor(access = lombok.AccessLevel.PACKAGE)
+@lombok.RequiredArgsConstructor(access = lombok.AccessLevel.PACKAGE)
 class ShellBanner implements Banner {
 
     private static final String[] SUPPORTED_IMAGES = {"gif", "jpg", "png"};
     private final List<Banner> banners = new ArrayList<>();
     private final Environment environment;
+    private volatile byte[] renderedBanner;
 
     @PostConstruct
     void init() {
@@ -67,7 +72,22 @@ class ShellBanner implements Banner {
 
     @Override
     public void printBanner(Environment environment, Class<?> sourceClass, PrintStream out) {
-        banners.forEach(banner -> banner.printBanner(environment, sourceClass, out));
+        byte[] banner = renderedBanner;
+        if (Objects.isNull(banner)) {
+            banner = render(environment, sourceClass);
+        }
+        out.write(banner, 0, banner.length);
+    }
+
+    private synchronized byte[] render(Environment environment, Class<?> sourceClass) {
+        if (Objects.isNull(renderedBanner)) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            PrintStream out = new PrintStream(output);
+            banners.forEach(banner -> banner.printBanner(environment, sourceClass, out));
+            out.flush();
+            renderedBanner = output.toByteArray();
+        }
+        return renderedBanner;
     }
 
     /**
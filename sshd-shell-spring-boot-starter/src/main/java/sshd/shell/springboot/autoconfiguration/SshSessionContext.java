@@ -17,8 +17,18 @@ package sshd.shell.springboot.autoconfiguration;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import jline.console.ConsoleReader;
 import org.springframework.boot.ansi.AnsiColor;
 import org.springframework.boot.ansi.AnsiOutput;
@@ -27,47 +37,253 @@ import org.springframework.boot.ansi.AnsiOutput;
  *
  * @author anand
  */
+@lombok.extern.slf4j.Slf4j
 public enum SshSessionContext {
 
     ;
 
-    private static final ThreadLocal<Map<String, Object>> THREAD_CONTEXT = new ThreadLocal<Map<String, Object>>() {
-        @Override
-        protected Map<String, Object> initialValue() {
-            return new HashMap<>();
+    private static final ThreadLocal<SshSessionState> THREAD_CONTEXT = new ThreadLocal<>();
+
+    static final Key<ConsoleReader> CONSOLE_READER = new Key<>("__consoleReader", state -> state.consoleReader,
+            (state, reader) -> state.consoleReader = reader);
+    static final Key<AnsiColor> TEXT_COLOR = new Key<>("__textColor", state -> state.textColor,
+            (state, color) -> state.textColor = color);
+    static final Key<PrintWriter> WRITER = new Key<>("__writer", state -> state.writer,
+            (state, writer) -> state.writer = writer);
+    static final Key<CoalescingWriter> OUTPUT_BUFFER = new Key<>("__outputBuffer", state -> state.outputBuffer,
+            (state, buffer) -> state.outputBuffer = buffer);
+    static final Key<String> TEXT_COLOR_PREFIX = new Key<>("__textColorPrefix", state -> state.textColorPrefix,
+            (state, prefix) -> state.textColorPrefix = prefix);
+    public static final Key<Collection<String>> USER_ROLES = new Key<>(Constants.USER_ROLES,
+            state -> state.userRoles, (state, roles) -> state.userRoles = roles);
+    public static final Key<CommandIndex.View> COMMAND_VIEW = new Key<>(Constants.COMMAND_VIEW,
+            state -> state.commandView, (state, view) -> state.commandView = view);
+    public static final Key<JobControl> JOB_CONTROL = new Key<>(Constants.JOB_CONTROL, state -> state.jobControl,
+            (state, jobControl) -> state.jobControl = jobControl);
+    private static final Map<String, Key<?>> BUILT_IN_KEYS = Stream.of(CONSOLE_READER, TEXT_COLOR, WRITER,
+            OUTPUT_BUFFER, TEXT_COLOR_PREFIX, USER_ROLES, COMMAND_VIEW, JOB_CONTROL)
+            .collect(Collectors.toMap(Key::getName, Function.identity()));
+    private static final int LINES_PER_ERROR_CHECK = 256;
+
+    /**
+     * State of the session served by the current thread, created on first use.
+     */
+    static SshSessionState current() {
+        SshSessionState state = THREAD_CONTEXT.get();
+        if (Objects.isNull(state)) {
+            state = new SshSessionState();
+            THREAD_CONTEXT.set(state);
         }
-    };
-    
-    static final String CONSOLE_READER = "__consoleReader";
-    static final String TEXT_COLOR = "__textColor";
-    static final String WRITER = "__writer";
+        return state;
+    }
+
+    /**
+     * Binds a session's state to the current thread until {@link #clear()} is called.
+     */
+    static void attach(SshSessionState state) {
+        THREAD_CONTEXT.set(state);
+    }
+
+    /**
+     * Runs a task with a copy of a session's state bound to the current thread, restoring whatever was bound before,
+     * so that tasks running on the session thread itself, e.g. part of a parallel stream, leave its context intact.
+     */
+    static <T> T callWith(SshSessionState state, Callable<T> task) throws Exception {
+        SshSessionState previous = THREAD_CONTEXT.get();
+        THREAD_CONTEXT.set(state.copy());
+        try {
+            return task.call();
+        } finally {
+            if (Objects.isNull(previous)) {
+                THREAD_CONTEXT.remove();
+            } else {
+                THREAD_CONTEXT.set(previous);
+            }
+        }
+    }
+
+    static Runnable wrap(Runnable task, SshSessionState state) {
+        return () -> unchecked(state, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Captures the current session context so that a task handed to another thread, e.g. through
+     * CompletableFuture.runAsync or an @Async method, can write output and see the session's roles and attributes.
+     * Each execution works on its own copy of the context as it was when the task was wrapped; attributes set by the
+     * task are not seen by the session. Output of concurrent tasks is interleaved line by line.
+     * @param task task
+     * @return task running with the session context, or the task itself if there is no session context
+     */
+    public static Runnable wrapRunnable(Runnable task) {
+        SshSessionState state = capture();
+        return Objects.isNull(state) ? task : wrap(task, state);
+    }
+
+    /**
+     * Captures the current session context for a task run on another thread.
+     * @param <T> result type
+     * @param task task
+     * @return task running with the session context, or the task itself if there is no session context
+     * @see #wrapRunnable(Runnable)
+     */
+    public static <T> Callable<T> wrapCallable(Callable<T> task) {
+        SshSessionState state = capture();
+        return Objects.isNull(state) ? task : () -> callWith(state, task);
+    }
+
+    /**
+     * Captures the current session context for a supplier run on another thread, e.g. by
+     * CompletableFuture.supplyAsync.
+     * @param <T> result type
+     * @param supplier supplier
+     * @return supplier running with the session context, or the supplier itself if there is no session context
+     * @see #wrapRunnable(Runnable)
+     */
+    public static <T> Supplier<T> wrapSupplier(Supplier<T> supplier) {
+        SshSessionState state = capture();
+        return Objects.isNull(state) ? supplier : () -> unchecked(state, supplier::get);
+    }
 
+    /**
+     * Captures the current session context for a function run on other threads, e.g. by a parallel stream.
+     * @param <T> argument type
+     * @param <R> result type
+     * @param function function
+     * @return function running with the session context, or the function itself if there is no session context
+     * @see #wrapRunnable(Runnable)
+     */
+    public static <T, R> Function<T, R> wrapFunction(Function<T, R> function) {
+        SshSessionState state = capture();
+        return Objects.isNull(state) ? function : t -> unchecked(state, () -> function.apply(t));
+    }
+
+    /**
+     * Captures the current session context for a consumer run on other threads, e.g. by a parallel stream.
+     * @param <T> argument type
+     * @param consumer consumer
+     * @return consumer running with the session context, or the consumer itself if there is no session context
+     * @see #wrapRunnable(Runnable)
+     */
+    public static <T> Consumer<T> wrapConsumer(Consumer<T> consumer) {
+        SshSessionState state = capture();
+        return Objects.isNull(state) ? consumer : t -> unchecked(state, () -> {
+            consumer.accept(t);
+            return null;
+        });
+    }
+
+    /**
+     * Executor running every task with the session context of the thread that submitted it.
+     * @param executor executor running the tasks
+     * @return context propagating executor
+     * @see #wrapRunnable(Runnable)
+     */
+    public static Executor wrapExecutor(Executor executor) {
+        return task -> executor.execute(wrapRunnable(task));
+    }
+
+    private static SshSessionState capture() {
+        SshSessionState state = THREAD_CONTEXT.get();
+        return Objects.isNull(state) ? null : state.copy();
+    }
+
+    private static <T> T unchecked(SshSessionState state, Callable<T> task) {
+        try {
+            return callWith(state, task);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex); // Unreachable, the wrapped lambdas throw no checked exceptions
+        }
+    }
+
+    public static <T> void put(Key<T> key, T value) {
+        key.set(current(), value);
+    }
+
+    public static <T> T get(Key<T> key) {
+        SshSessionState state = THREAD_CONTEXT.get();
+        return Objects.isNull(state) ? null : key.get(state);
+    }
+
+    public static <T> T remove(Key<T> key) {
+        SshSessionState state = THREAD_CONTEXT.get();
+        return Objects.isNull(state) ? null : key.remove(state);
+    }
+
+    public static boolean containsKey(Key<?> key) {
+        SshSessionState state = THREAD_CONTEXT.get();
+        return Objects.nonNull(state) && key.isSet(state);
+    }
+
+    @SuppressWarnings("unchecked")
     public static void put(String key, Object value) {
-        THREAD_CONTEXT.get().put(key, value);
+        Key<Object> builtIn = (Key<Object>) BUILT_IN_KEYS.get(key);
+        if (Objects.isNull(builtIn)) {
+            current().setAttribute(key, value);
+        } else {
+            put(builtIn, value);
+        }
     }
 
     @SuppressWarnings("unchecked")
     public static <E> E get(String key) {
-        return (E) THREAD_CONTEXT.get().get(key);
+        Key<?> builtIn = BUILT_IN_KEYS.get(key);
+        if (Objects.nonNull(builtIn)) {
+            return (E) get(builtIn);
+        }
+        SshSessionState state = THREAD_CONTEXT.get();
+        return Objects.isNull(state) ? null : state.getAttribute(key);
     }
 
     @SuppressWarnings("unchecked")
     public static <E> E remove(String key) {
-        return (E) THREAD_CONTEXT.get().remove(key);
+        Key<?> builtIn = BUILT_IN_KEYS.get(key);
+        if (Objects.nonNull(builtIn)) {
+            return (E) remove(builtIn);
+        }
+        SshSessionState state = THREAD_CONTEXT.get();
+        return Objects.isNull(state) ? null : state.removeAttribute(key);
     }
-    
+
     public static boolean containsKey(String key) {
-        return THREAD_CONTEXT.get().containsKey(key);
+        Key<?> builtIn = BUILT_IN_KEYS.get(key);
+        if (Objects.nonNull(builtIn)) {
+            return containsKey(builtIn);
+        }
+        SshSessionState state = THREAD_CONTEXT.get();
+        return Objects.nonNull(state) && state.hasAttribute(key);
     }
-    
+
     public static boolean isEmpty() {
-        return THREAD_CONTEXT.get().isEmpty();
+        SshSessionState state = THREAD_CONTEXT.get();
+        return Objects.isNull(state) || state.isEmpty();
     }
 
     public static void clear() {
         THREAD_CONTEXT.remove();
     }
-    
+
+    /**
+     * Whether output is rendered by a terminal, i.e. the command runs in the foreground of an interactive shell rather
+     * than for an exec request or as a background job.
+     * @return true if the session has a terminal
+     */
+    public static boolean isInteractive() {
+        return Objects.nonNull(current().consoleReader);
+    }
+
+    /**
+     * Marks the running command as failed, so that exec requests and batch trailers report exit status 1 for a
+     * command returning an error message rather than throwing, e.g. its usage.
+     */
+    public static void markFailed() {
+        current().failed = true;
+    }
+
     /**
      * Read input from line with mask. Use null if input is to be echoed. Use 0 if nothing is to be echoed and other
      * characters that get echoed with input
@@ -77,9 +293,13 @@ public enum SshSessionContext {
      * @throws IOException if any
      */
     public static String readInput(String text, Character mask) throws IOException {
-        ConsoleReader reader = get(CONSOLE_READER);
-        AnsiColor textColor = get(TEXT_COLOR);
-        return reader.readLine(AnsiOutput.encode(textColor) + text + " " + AnsiOutput.encode(AnsiColor.DEFAULT), mask);
+        drainOutput();
+        SshSessionState state = current();
+        ConsoleReader reader = state.consoleReader;
+        if (Objects.isNull(reader)) {
+            throw new IOException("Interactive input is only supported in shell sessions");
+        }
+        return reader.readLine(textColorPrefix(state) + text + " " + AnsiOutput.encode(AnsiColor.DEFAULT), mask);
     }
     
     /**
@@ -97,9 +317,145 @@ public enum SshSessionContext {
      * @param text Text output
      */
     public static void writeOutput(String text) {
-        PrintWriter writer = get(WRITER);
-        writer.println(AnsiOutput.encode(get(TEXT_COLOR)) + text);
-        writer.write(ConsoleReader.RESET_LINE);
+        SshSessionState state = current();
+        PrintWriter writer = state.writer;
+        synchronized (state.outputLock) { // Keep lines of tasks writing from other threads apart
+            writer.print(textColorPrefix(state));
+            writer.println(text);
+            writer.write(ConsoleReader.RESET_LINE);
+            writer.flush();
+        }
+    }
+
+    /**
+     * ANSI encoded text color, cached for the session.
+     */
+    private static String textColorPrefix(SshSessionState state) {
+        if (Objects.isNull(state.textColorPrefix)) {
+            state.textColorPrefix = AnsiOutput.encode(state.textColor);
+        }
+        return state.textColorPrefix;
+    }
+
+    /**
+     * Sends output held back by buffered output mode, if enabled.
+     * @throws IOException if any
+     */
+    static void drainOutput() throws IOException {
+        CoalescingWriter outputBuffer = current().outputBuffer;
+        if (Objects.nonNull(outputBuffer)) {
+            outputBuffer.drain();
+        }
+    }
+
+    /**
+     * Write command output, streaming Stream, Iterable and Iterator output line by line.
+     * @param output command output
+     * @throws InterruptedException if session is terminated while output is being written
+     */
+    static void writeCommandOutput(Object output) throws InterruptedException {
+        if (output instanceof Stream) {
+            try (Stream<?> lines = (Stream<?>) output) {
+                writeLines(lines.iterator());
+            }
+        } else if (output instanceof Iterable) {
+            writeLines(((Iterable<?>) output).iterator());
+        } else if (output instanceof Iterator) {
+            writeLines((Iterator<?>) output);
+        } else {
+            writeOutput(String.valueOf(output));
+        }
+    }
+
+    /**
+     * Lines are pulled from the iterator only as fast as the channel accepts them. The writer is not flushed per
+     * line, so output goes out in packet sized chunks, and writes block while the client's SSH window is exhausted,
+     * keeping memory constant for lazily produced output.
+     */
+    private static void writeLines(Iterator<?> lines) throws InterruptedException {
+        SshSessionState state = current();
+        PrintWriter writer = state.writer;
+        synchronized (state.outputLock) {
+            writer.print(textColorPrefix(state));
+        }
+        int count = 0;
+        try {
+            while (lines.hasNext()) {
+                Object line = lines.next(); // Produced outside the lock, it may wait for tasks writing progress
+                synchronized (state.outputLock) {
+                    writer.println(line);
+                    writer.write(ConsoleReader.RESET_LINE);
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Session terminated while writing output");
+                }
+                if (++count % LINES_PER_ERROR_CHECK == 0 && writer.checkError()) {
+                    log.debug("Channel closed after {} lines of output", count);
+                    return;
+                }
+            }
+        } catch (RuntimeException ex) {
+            markFailed(); // Same status as a command method throwing before returning its output
+            String errorInfo = MethodHandleCommandExecutor.getErrorInfo(ex);
+            synchronized (state.outputLock) {
+                writer.println(errorInfo);
+                writer.write(ConsoleReader.RESET_LINE);
+            }
+        }
         writer.flush();
     }
+
+    /**
+     * Typed key of a session attribute. Keys of user attributes share their value with the untyped accessors taking
+     * the key's name.
+     *
+     * @param <T> attribute type
+     */
+    public static final class Key<T> {
+
+        @lombok.Getter
+        private final String name;
+        private final Function<SshSessionState, T> getter;
+        private final BiConsumer<SshSessionState, T> setter;
+
+        private Key(String name, Function<SshSessionState, T> getter, BiConsumer<SshSessionState, T> setter) {
+            this.name = name;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        public static <T> Key<T> of(String name) {
+            return new Key<>(Objects.requireNonNull(name, "name"), null, null);
+        }
+
+        private T get(SshSessionState state) {
+            return Objects.isNull(getter) ? state.getAttribute(name) : getter.apply(state);
+        }
+
+        private void set(SshSessionState state, T value) {
+            if (Objects.isNull(setter)) {
+                state.setAttribute(name, value);
+            } else {
+                setter.accept(state, value);
+            }
+        }
+
+        private T remove(SshSessionState state) {
+            if (Objects.isNull(getter)) {
+                return state.removeAttribute(name);
+            }
+            T value = getter.apply(state);
+            setter.accept(state, null);
+            return value;
+        }
+
+        private boolean isSet(SshSessionState state) {
+            return Objects.isNull(getter) ? state.hasAttribute(name) : Objects.nonNull(getter.apply(state));
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
 }
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Runs tasks of Spring's task executors, e.g. @Async methods called by a command, with the session context of the
+ * thread that submitted them. See {@link SshSessionContext#wrapRunnable(Runnable)}.
+ *
+ * @author anand
+ */
+public class SshSessionContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        return SshSessionContext.wrapRunnable(runnable);
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Bounded executor running SSH shell sessions. Each session occupies a thread for its entire lifetime, so the pool
+ * size is effectively the maximum number of concurrently served sessions. Sessions (and the commands they execute)
+ * may optionally run on virtual threads when the runtime supports them. Periodic housekeeping, such as evicting
+ * expired sessions, runs on a single scheduler thread. Deferred flushes of buffered output are timed by a separate
+ * scheduler thread that only hands them off to a flush pool, so a client that stops reading blocks neither the
+ * output of other sessions nor the housekeeping. Background jobs started by sessions run on a separate bounded pool,
+ * so that they can neither starve nor be starved by the sessions themselves.
+ *
+ * @author anand
+ */
+@lombok.extern.slf4j.Slf4j
+public class SshSessionExecutor {
+
+    private static final String THREAD_NAME_PREFIX = "sshd-cli-";
+    private static final String SCHEDULER_THREAD_NAME_PREFIX = "sshd-scheduler-";
+    private static final String JOB_THREAD_NAME_PREFIX = "sshd-job-";
+    private static final String FLUSH_SCHEDULER_THREAD_NAME_PREFIX = "sshd-flush-scheduler-";
+    private static final String FLUSH_THREAD_NAME_PREFIX = "sshd-flush-";
+    private static final int MIN_VIRTUAL_THREAD_FEATURE_VERSION = 24;
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final ThreadPoolExecutor jobExecutor;
+    private final ScheduledThreadPoolExecutor flushScheduler;
+    private final ThreadPoolExecutor flushExecutor;
+    private final AtomicLong rejectedSessions = new AtomicLong();
+    @lombok.Getter
+    private final boolean virtualThreads;
+
+    SshSessionExecutor(SshdShellProperties.Shell.Session.Executor properties,
+            SshdShellProperties.Shell.Jobs jobProperties) {
+        ThreadFactory threadFactory = properties.isVirtualThreads() ? createVirtualThreadFactory(THREAD_NAME_PREFIX)
+                : null;
+        virtualThreads = Objects.nonNull(threadFactory);
+        executor = new ThreadPoolExecutor(properties.getPoolSize(), properties.getPoolSize(),
+                properties.getKeepAlive().toNanos(), TimeUnit.NANOSECONDS, createQueue(properties.getQueueCapacity()),
+                virtualThreads ? threadFactory : new CustomizableThreadFactory(THREAD_NAME_PREFIX),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        scheduler = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory(SCHEDULER_THREAD_NAME_PREFIX));
+        scheduler.setRemoveOnCancelPolicy(true);
+        jobExecutor = new ThreadPoolExecutor(jobProperties.getPoolSize(), jobProperties.getPoolSize(),
+                properties.getKeepAlive().toNanos(), TimeUnit.NANOSECONDS, new SynchronousQueue<>(),
+                virtualThreads ? createVirtualThreadFactory(JOB_THREAD_NAME_PREFIX)
+                        : new CustomizableThreadFactory(JOB_THREAD_NAME_PREFIX),
+                new ThreadPoolExecutor.AbortPolicy());
+        jobExecutor.allowCoreThreadTimeOut(true);
+        flushScheduler = new ScheduledThreadPoolExecutor(1,
+                new CustomizableThreadFactory(FLUSH_SCHEDULER_THREAD_NAME_PREFIX));
+        flushScheduler.setRemoveOnCancelPolicy(true);
+        flushExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, properties.getKeepAlive().toNanos(),
+                TimeUnit.NANOSECONDS, new SynchronousQueue<>(),
+                virtualThreads ? createVirtualThreadFactory(FLUSH_THREAD_NAME_PREFIX)
+                        : new CustomizableThreadFactory(FLUSH_THREAD_NAME_PREFIX));
+    }
+
+    /**
+     * Looks up Thread.ofVirtual().name(prefix, 0).factory() reflectively so that the starter can still be compiled
+     * for and run on runtimes without virtual thread support. Idle sessions block in jline's NonBlockingInputStream,
+     * which reads and waits under a monitor. Before Java 24 (JEP 491) that pins the virtual thread to its carrier;
+     * on JDK 21 IdleSessionFootprint measured more platform threads than with platform threads, and sessions beyond
+     * the number of carriers were never scheduled. Older runtimes therefore fall back to platform threads.
+     *
+     * @return virtual thread factory or null if the runtime does not support virtual threads
+     */
+    private static ThreadFactory createVirtualThreadFactory(String threadNamePrefix) {
+        try {
+            if (runtimeFeatureVersion() < MIN_VIRTUAL_THREAD_FEATURE_VERSION) {
+                log.warn("Ignoring sshd.shell.session.executor.virtualThreads on Java {}, idle sessions would pin "
+                        + "their carrier threads before Java {}, falling back to platform threads",
+                        runtimeFeatureVersion(), MIN_VIRTUAL_THREAD_FEATURE_VERSION);
+                return null;
+            }
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, threadNamePrefix, 0L);
+            Method factory = builderClass.getMethod("factory");
+            log.info("Running {}* threads as virtual threads", threadNamePrefix);
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException ex) {
+            log.warn("Ignoring sshd.shell.session.executor.virtualThreads, virtual threads are not supported by this "
+                    + "runtime, falling back to platform threads");
+            return null;
+        }
+    }
+
+    private static int runtimeFeatureVersion() throws ReflectiveOperationException {
+        Object version = Runtime.class.getMethod("version").invoke(null);
+        return (Integer) version.getClass().getMethod("feature").invoke(version);
+    }
+
+    private static BlockingQueue<Runnable> createQueue(int queueCapacity) {
+        return queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>();
+    }
+
+    Future<?> submit(Runnable session) throws RejectedExecutionException {
+        try {
+            return executor.submit(session);
+        } catch (RejectedExecutionException ex) {
+            rejectedSessions.incrementAndGet();
+            throw ex;
+        }
+    }
+
+    Future<?> submitJob(Runnable job) throws RejectedExecutionException {
+        return jobExecutor.submit(job);
+    }
+
+    /**
+     * Runs a flush of session output after the given delay. Each flush runs on a thread of its own, since writing to
+     * the channel blocks for as long as the client does not read.
+     */
+    ScheduledFuture<?> scheduleFlush(Runnable flush, long delay, TimeUnit unit) {
+        return flushScheduler.schedule(() -> flushExecutor.execute(flush), delay, unit);
+    }
+
+    ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return scheduler.scheduleAtFixedRate(task, initialDelay, period, unit);
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+        jobExecutor.shutdownNow();
+        flushScheduler.shutdownNow();
+        flushExecutor.shutdownNow();
+    }
+
+    /**
+     * Number of sessions currently being served.
+     * @return active sessions
+     */
+    public int getActiveSessions() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Number of background jobs currently running.
+     * @return active jobs
+     */
+    public int getActiveJobs() {
+        return jobExecutor.getActiveCount();
+    }
+
+    /**
+     * Number of sessions waiting for a free thread.
+     * @return queued sessions
+     */
+    public int getQueuedSessions() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Number of sessions turned away because both pool and queue were full.
+     * @return rejected sessions
+     */
+    public long getRejectedSessions() {
+        return rejectedSessions.get();
+    }
+}
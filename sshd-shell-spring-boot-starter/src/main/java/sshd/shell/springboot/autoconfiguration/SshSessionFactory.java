@@ -18,9 +18,10 @@
  */
 package sshd.shell.springboot.autoconfiguration;
 
-import java.util.Map;
+import java.util.List;
 import org.apache.sshd.common.Factory;
 import org.apache.sshd.server.Command;
+import org.apache.sshd.server.CommandFactory;
 import org.springframework.boot.Banner;
 import org.springframework.core.env.Environment;
 
@@ -29,15 +30,26 @@ import org.springframework.core.env.Environment;
  * @author anand
  */
 @lombok.AllArgsConstructor(access = lombok.AccessLevel.PACKAGE)
-class SshSessionFactory implements Factory<Command> {
+class SshSessionFactory implements Factory<Command>, CommandFactory {
     
     private final SshdShellProperties properties;
-    private final Map<String, Map<String, CommandExecutableDetails>> commandMap;
+    private final CommandIndex commandIndex;
     private final Environment environment;
     private final Banner shellBanner;
+    private final SshSessionExecutor sessionExecutor;
+    private final SshSessionRegistry sessionRegistry;
+    private final List<CommandExecutionListener> listeners;
+    private final SshdTransportStats transportStats;
 
     @Override
     public Command create() {
-        return new SshSessionInstance(properties, commandMap, environment, shellBanner);
+        return new SshSessionInstance(properties, commandIndex, environment, shellBanner, sessionExecutor,
+                sessionRegistry, null, listeners, transportStats);
+    }
+
+    @Override
+    public Command createCommand(String command) {
+        return new SshSessionInstance(properties, commandIndex, environment, shellBanner, sessionExecutor,
+                sessionRegistry, command, listeners, transportStats);
     }
 }
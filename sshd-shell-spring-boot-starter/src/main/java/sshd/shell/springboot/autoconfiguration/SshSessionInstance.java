@@ -18,19 +18,31 @@
  */
 package sshd.shell.springboot.autoconfiguration;
 
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.FilterWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
-import java.util.Map;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import jline.console.ConsoleReader;
 import org.apache.sshd.server.ChannelSessionAware;
 import org.apache.sshd.server.Command;
 import org.apache.sshd.server.ExitCallback;
+import org.apache.sshd.server.channel.ChannelDataReceiver;
 import org.apache.sshd.server.channel.ChannelSession;
+import org.apache.sshd.server.channel.PipeDataReceiver;
 import org.springframework.boot.Banner;
 import org.springframework.boot.ansi.AnsiColor;
 import org.springframework.boot.ansi.AnsiOutput;
@@ -43,108 +55,274 @@ import org.springframework.core.env.Environment;
 @lombok.extern.slf4j.Slf4j
 class SshSessionInstance implements Command, ChannelSessionAware, Runnable {
 
-    private static final String SUPPORTED_COMMANDS_MESSAGE = "Enter '" + Constants.HELP
-            + "' for a list of supported commands";
-    private static final String UNSUPPORTED_COMMANDS_MESSAGE = "Unknown command. " + SUPPORTED_COMMANDS_MESSAGE;
+    private static final int EXIT_FAILURE = 1;
+    private static final int EXIT_INTERRUPTED = 130;
+    private static final byte CTRL_C = 0x03;
     private final SshdShellProperties.Shell properties;
-    private final Map<String, Map<String, CommandExecutableDetails>> commandMap;
+    private final CommandIndex commandIndex;
+    private final CommandDispatcher commandDispatcher;
+    private final String commandLine;
     private final Environment environment;
     private final Banner shellBanner;
+    private final SshSessionExecutor sessionExecutor;
+    private final SshSessionRegistry sessionRegistry;
+    private final SshdTransportStats.Traffic traffic;
+    private final SshSessionState context = new SshSessionState();
+    @lombok.Getter(lombok.AccessLevel.PACKAGE)
+    private long startTime;
+    @lombok.Getter(lombok.AccessLevel.PACKAGE)
+    private volatile long lastActivity;
+    @lombok.Getter(lombok.AccessLevel.PACKAGE)
+    private volatile boolean awaitingInput;
+    private volatile String exitReason;
+    private volatile Thread sessionThread;
+    private volatile boolean commandRunning;
+    private volatile boolean interruptRequested;
     private InputStream is;
     private OutputStream os;
     private ExitCallback callback;
-    private Thread sshThread;
+    private Future<?> sshSession;
+    private Writer output;
     private PrintWriter writer;
+    private JobControl jobControl;
     private ChannelSession session;
 
-    SshSessionInstance(SshdShellProperties properties, Map<String, Map<String, CommandExecutableDetails>> commandMap,
-            Environment environment, Banner shellBanner) {
+    SshSessionInstance(SshdShellProperties properties, CommandIndex commandIndex, Environment environment,
+            Banner shellBanner, SshSessionExecutor sessionExecutor, SshSessionRegistry sessionRegistry) {
+        this(properties, commandIndex, environment, shellBanner, sessionExecutor, sessionRegistry, null,
+                Collections.emptyList(), new SshdTransportStats());
+    }
+
+    /**
+     * @param commandLine command requested through an exec channel, executed without banner, prompt or line editing,
+     * or null for an interactive shell
+     * @param listeners notified of every command executed by the session
+     * @param transportStats counts the bytes exchanged over the session's channel
+     */
+    SshSessionInstance(SshdShellProperties properties, CommandIndex commandIndex, Environment environment,
+            Banner shellBanner, SshSessionExecutor sessionExecutor, SshSessionRegistry sessionRegistry,
+            String commandLine, List<CommandExecutionListener> listeners, SshdTransportStats transportStats) {
         this.properties = properties.getShell();
-        this.commandMap = commandMap;
+        this.commandIndex = commandIndex;
+        this.commandDispatcher = new CommandDispatcher(commandIndex, listeners);
+        this.commandLine = commandLine;
         this.environment = environment;
         this.shellBanner = shellBanner;
+        this.sessionExecutor = sessionExecutor;
+        this.sessionRegistry = sessionRegistry;
+        this.traffic = transportStats.getChannels().get(Objects.isNull(commandLine) ? SshdTransportStats.SHELL
+                : SshdTransportStats.EXEC);
     }
 
     @Override
     public void start(org.apache.sshd.server.Environment env) throws IOException {
-        sshThread = new Thread(this, "sshd-cli");
-        sshThread.start();
+        startTime = System.nanoTime();
+        lastActivity = startTime;
+        traffic.channelOpened();
+        if (!sessionRegistry.register(this, session.getSession().getUsername())) {
+            exit(properties.getSession().getLimitMessage());
+            return;
+        }
+        try {
+            sshSession = sessionExecutor.submit(this);
+        } catch (RejectedExecutionException ex) {
+            sessionRegistry.unregister(this);
+            log.warn("Rejecting SSH session, {} sessions active and {} queued", sessionExecutor.getActiveSessions(),
+                    sessionExecutor.getQueuedSessions());
+            exit(properties.getSession().getExecutor().getBusyMessage());
+        }
+    }
+
+    private void exit(String message) throws IOException {
+        os.write((message + "\r\n").getBytes(StandardCharsets.UTF_8));
+        os.flush();
+        callback.onExit(EXIT_FAILURE, message);
     }
 
     @Override
     public void run() {
-        shellBanner.printBanner(environment, this.getClass(), new PrintStream(os));
+        sessionThread = Thread.currentThread();
+        if (Objects.nonNull(commandLine)) {
+            runCommand();
+            return;
+        }
         try (ConsoleReader reader = new ConsoleReader(is, os)) {
+            printBanner();
             reader.setPrompt(AnsiOutput.encode(properties.getPrompt().getColor()) + properties.getPrompt().getTitle()
                     + "> " + AnsiOutput.encode(AnsiColor.DEFAULT));
-            writer = new PrintWriter(reader.getOutput());
+            CoalescingWriter outputBuffer = properties.getOutput().isBuffered()
+                    ? new CoalescingWriter(reader.getOutput(), properties.getOutput(), sessionExecutor) : null;
+            output = countOutput(Objects.isNull(outputBuffer) ? reader.getOutput() : outputBuffer);
+            writer = new PrintWriter(output);
             createDefaultSessionContext(reader);
-            SshSessionContext.writeOutput(SUPPORTED_COMMANDS_MESSAGE);
+            context.outputBuffer = outputBuffer;
+            jobControl = new JobControl(commandDispatcher, sessionExecutor, properties.getJobs());
+            context.jobControl = jobControl;
+            SshSessionContext.writeOutput(CommandDispatcher.SUPPORTED_COMMANDS_MESSAGE);
             String line;
-            while ((line = reader.readLine()) != null) {
-                handleUserInput(line.trim());
+            while ((line = readLine(reader)) != null) {
+                executeForeground(line.trim());
+                lastActivity = System.nanoTime();
             }
         } catch (IOException ex) {
             log.error("Error with console reader", ex);
         } catch (InterruptedException ex) {
             log.info(ex.getMessage());
         } finally {
+            if (Objects.nonNull(jobControl)) {
+                jobControl.cancelAll();
+            }
+            writeExitReason();
+            drainOutput();
+            sessionRegistry.unregister(this);
             SshSessionContext.clear();
             callback.onExit(0);
         }
     }
 
-    private void createDefaultSessionContext(ConsoleReader reader) throws IOException {
-        SshSessionContext.put(SshSessionContext.CONSOLE_READER, reader);
-        SshSessionContext.put(SshSessionContext.TEXT_COLOR, properties.getText().getColor());
-        SshSessionContext.put(SshSessionContext.WRITER, writer);
-        SshSessionContext.put(Constants.USER_ROLES, session.getSession().getIoSession()
-                .getAttribute(Constants.USER_ROLES));
+    private void printBanner() {
+        try {
+            shellBanner.printBanner(environment, this.getClass(), new PrintStream(os));
+        } catch (RuntimeException ex) {
+            log.warn("Unable to print shell banner", ex);
+        }
     }
 
-    private void handleUserInput(String userInput) throws InterruptedException {
-        String[] part = userInput.split(" ", 3);
-        String command = part[0];
-        Map<String, CommandExecutableDetails> commandExecutables = commandMap.get(command);
-        if (Objects.isNull(commandExecutables)) {
-            SshSessionContext.writeOutput(UNSUPPORTED_COMMANDS_MESSAGE);
-            return;
-        }
-        CommandExecutableDetails ced = commandExecutables.get(Constants.EXECUTE);
-        Collection<String> userRoles = SshSessionContext.<Collection<String>>get(Constants.USER_ROLES);
-        if (!ced.matchesRole(userRoles)) {
-            SshSessionContext.writeOutput("Permission denied");
-            return;
+    private void runCommand() {
+        int exitStatus = EXIT_FAILURE;
+        try {
+            writer = new PrintWriter(countOutput(new ExecOutputWriter(new OutputStreamWriter(os,
+                    StandardCharsets.UTF_8))));
+            createDefaultSessionContext(null);
+            context.textColorPrefix = "";
+            commandRunning = true;
+            exitStatus = commandDispatcher.dispatch(commandLine.trim());
+        } catch (InterruptedException ex) {
+            log.info(ex.getMessage());
+            if (interruptRequested) {
+                exitStatus = EXIT_INTERRUPTED;
+            }
+        } finally {
+            commandRunning = false;
+            writeExitReason();
+            writer.flush();
+            sessionRegistry.unregister(this);
+            SshSessionContext.clear();
+            callback.onExit(exitStatus);
         }
-        if (part.length < 2) {
-            if (Objects.isNull(ced.getCommandExecutor())) {
-                StringBuilder sb = new StringBuilder("Supported subcommand for ").append(command);
-                commandExecutables.entrySet().stream()
-                        .filter(e -> !e.getKey().equals(Constants.EXECUTE) && e.getValue().matchesRole(userRoles))
-                        .forEach(e -> sb.append("\n\r").append(e.getKey()).append("\t\t")
-                        .append(e.getValue().getDescription()));
-                SshSessionContext.writeOutput(sb.toString());
-            } else {
-                SshSessionContext.writeOutput(ced.getCommandExecutor().get(null));
+    }
+
+    /**
+     * Runs a command of the interactive shell. Ctrl-C interrupts the session thread while a command is running, which
+     * ends the command but not the session.
+     */
+    private void executeForeground(String userInput) throws InterruptedException {
+        interruptRequested = false;
+        commandRunning = true;
+        try {
+            handleUserInput(userInput);
+        } catch (InterruptedException ex) {
+            if (!interruptRequested || Objects.nonNull(exitReason)) {
+                throw ex;
             }
-        } else if (commandExecutables.containsKey(part[1])) {
-            String subCommand = part[1];
-            ced = commandExecutables.get(subCommand);
-            if (!ced.matchesRole(userRoles)) {
-                SshSessionContext.writeOutput("Permission denied");
-            } else {
-                SshSessionContext.writeOutput(commandExecutables.get(subCommand).getCommandExecutor()
-                        .get(part.length == 2 ? null : part[2]));
+            writer = new PrintWriter(output); // Drop the error state of a write cut short by the interrupt
+            context.writer = writer;
+            SshSessionContext.writeOutput("^C");
+        } finally {
+            commandRunning = false;
+            if (interruptRequested && Objects.isNull(exitReason)) {
+                Thread.interrupted(); // Ctrl-C arrived as the command completed
             }
-        } else {
-            SshSessionContext.writeOutput("Unknown sub command '" + part[1] + "'. Type '" + part[0] 
-                    + " help' for more information");
         }
     }
 
+    private void requestInterrupt() {
+        interruptRequested = true;
+        Thread thread = sessionThread;
+        if (Objects.nonNull(thread)) {
+            thread.interrupt();
+        }
+    }
+
+    private String readLine(ConsoleReader reader) throws IOException {
+        jobControl.notices().forEach(SshSessionContext::writeOutput);
+        SshSessionContext.drainOutput();
+        awaitingInput = true;
+        try {
+            return reader.readLine();
+        } finally {
+            awaitingInput = false;
+        }
+    }
+
+    /**
+     * Ends the session as if the user had closed the input stream: the session thread is interrupted, reads from
+     * the client report end of stream and the session exits through its regular exit path.
+     * @param reason message shown to the user
+     * @return true unless the session was already being evicted
+     */
+    boolean evict(String reason) {
+        boolean evicted = Objects.isNull(exitReason);
+        if (evicted) {
+            exitReason = reason;
+            log.info("Evicting SSH session of {}: {}", session.getSession().getUsername(), reason);
+        }
+        Thread thread = sessionThread;
+        if (Objects.nonNull(thread)) {
+            thread.interrupt();
+        }
+        return evicted;
+    }
+
+    private void writeExitReason() {
+        if (Objects.nonNull(exitReason) && Objects.nonNull(writer)) {
+            Thread.interrupted(); // Clear the eviction interrupt so that the message can be written
+            SshSessionContext.writeOutput(exitReason);
+        }
+    }
+
+    /**
+     * Sends buffered output before the channel is closed, a deferred flush would find it closed.
+     */
+    private void drainOutput() {
+        try {
+            SshSessionContext.drainOutput();
+        } catch (IOException ex) {
+            log.debug("Unable to flush session output: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Counts the command output written to the session, but only if someone is interested in the count.
+     */
+    private Writer countOutput(Writer out) {
+        if (commandDispatcher.hasListeners()) {
+            context.outputCounter = new CountingWriter(out);
+            return context.outputCounter;
+        }
+        return out;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void createDefaultSessionContext(ConsoleReader reader) {
+        SshSessionContext.attach(context);
+        context.consoleReader = reader;
+        context.textColor = properties.getText().getColor();
+        context.writer = writer;
+        context.userRoles = (Collection<String>) session.getSession().getIoSession().getAttribute(Constants.USER_ROLES);
+        context.commandView = commandIndex.forRoles(context.userRoles);
+    }
+
+    void handleUserInput(String userInput) throws InterruptedException {
+        commandDispatcher.dispatch(userInput);
+    }
+
     @Override
     public void destroy() throws Exception {
-        sshThread.interrupt();
+        sessionRegistry.unregister(this);
+        if (Objects.nonNull(sshSession)) {
+            sshSession.cancel(true);
+        }
     }
 
     @Override
@@ -158,16 +336,152 @@ class SshSessionInstance implements Command, ChannelSessionAware, Runnable {
 
     @Override
     public void setInputStream(InputStream is) {
-        this.is = is;
+        this.is = new ActivityInputStream(is);
     }
 
     @Override
     public void setOutputStream(OutputStream os) {
-        this.os = os;
+        this.os = new TrafficOutputStream(os);
     }
 
     @Override
     public void setChannelSession(ChannelSession session) {
         this.session = session;
+        PipeDataReceiver pipe = new PipeDataReceiver(session, session.getLocalWindow());
+        session.setDataReceiver(new InterruptingDataReceiver(pipe));
+        setInputStream(pipe.getIn());
+    }
+
+    /**
+     * Records user activity and reports end of stream once the session is evicted. A Ctrl-C that arrives just after
+     * its command completed interrupts the read of the next command line, which is then retried.
+     */
+    private class ActivityInputStream extends FilterInputStream {
+
+        ActivityInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            for (;;) {
+                if (Objects.nonNull(exitReason)) {
+                    return -1;
+                }
+                try {
+                    int b = super.read();
+                    lastActivity = System.nanoTime();
+                    return b;
+                } catch (InterruptedIOException ex) {
+                    checkInterrupt(ex);
+                }
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            for (;;) {
+                if (Objects.nonNull(exitReason)) {
+                    return -1;
+                }
+                try {
+                    int read = super.read(b, off, len);
+                    lastActivity = System.nanoTime();
+                    return read;
+                } catch (InterruptedIOException ex) {
+                    checkInterrupt(ex);
+                }
+            }
+        }
+
+        private void checkInterrupt(InterruptedIOException ex) throws InterruptedIOException {
+            if (Objects.isNull(exitReason) && (!interruptRequested || commandRunning)) {
+                throw ex;
+            }
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Takes Ctrl-C out of the input while a command is running and interrupts the command instead. The channel window
+     * is adjusted for the dropped bytes, the rest of the input is consumed from the pipe as usual.
+     */
+    @lombok.AllArgsConstructor
+    private class InterruptingDataReceiver implements ChannelDataReceiver {
+
+        private final PipeDataReceiver pipe;
+
+        @Override
+        public int data(ChannelSession channel, byte[] buf, int start, int len) throws IOException {
+            traffic.read(len);
+            if (!commandRunning) {
+                return pipe.data(channel, buf, start, len);
+            }
+            byte[] data = new byte[len];
+            int kept = 0;
+            for (int i = start; i < start + len; i++) {
+                if (buf[i] == CTRL_C) {
+                    requestInterrupt();
+                } else {
+                    data[kept++] = buf[i];
+                }
+            }
+            return (kept > 0 ? pipe.data(channel, data, 0, kept) : 0) + len - kept;
+        }
+
+        @Override
+        public void close() throws IOException {
+            pipe.close();
+        }
+    }
+
+    /**
+     * Counts the bytes written to the channel, passing arrays through as a whole unlike FilterOutputStream.
+     */
+    private class TrafficOutputStream extends FilterOutputStream {
+
+        TrafficOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            traffic.written(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            traffic.written(len);
+        }
+    }
+
+    /**
+     * Exec output is not rendered by a terminal, so the carriage returns positioning the shell's cursor are dropped.
+     */
+    private static class ExecOutputWriter extends FilterWriter {
+
+        ExecOutputWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            if (c != '\r') {
+                super.write(c);
+            }
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            write(new String(cbuf, off, len), 0, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            String text = str.substring(off, off + len).replace("\r", "");
+            super.write(text, 0, text.length());
+        }
     }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live SSH shell sessions. Admits sessions within the global and per user limits and periodically evicts sessions
+ * that waited at the prompt for longer than the idle timeout or that exceeded the maximum session duration.
+ *
+ * @author anand
+ */
+@lombok.extern.slf4j.Slf4j
+public class SshSessionRegistry {
+
+    static final String IDLE_TIMEOUT_MESSAGE = "Session idle timeout exceeded";
+    static final String MAX_DURATION_MESSAGE = "Session duration limit exceeded";
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+
+    private final SshdShellProperties.Shell.Session properties;
+    private final Map<SshSessionInstance, String> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Integer> sessionsPerUser = new HashMap<>();
+    private final AtomicLong limitedSessions = new AtomicLong();
+    private final AtomicLong idleEvictions = new AtomicLong();
+    private final AtomicLong durationEvictions = new AtomicLong();
+
+    SshSessionRegistry(SshdShellProperties.Shell.Session properties, SshSessionExecutor sessionExecutor) {
+        this.properties = properties;
+        if (properties.getIdleTimeout().toNanos() > 0 || properties.getMaxDuration().toNanos() > 0) {
+            sessionExecutor.scheduleAtFixedRate(this::evictExpiredSessions, SWEEP_INTERVAL_MILLIS,
+                    SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    synchronized boolean register(SshSessionInstance session, String username) {
+        int userSessions = sessionsPerUser.getOrDefault(username, 0);
+        if ((properties.getMaxSessions() > 0 && sessions.size() >= properties.getMaxSessions())
+                || (properties.getMaxSessionsPerUser() > 0 && userSessions >= properties.getMaxSessionsPerUser())) {
+            limitedSessions.incrementAndGet();
+            log.warn("Rejecting SSH session of {}, {} sessions live and {} of user", username, sessions.size(),
+                    userSessions);
+            return false;
+        }
+        sessions.put(session, username);
+        sessionsPerUser.put(username, userSessions + 1);
+        return true;
+    }
+
+    synchronized void unregister(SshSessionInstance session) {
+        String username = sessions.remove(session);
+        if (Objects.nonNull(username)) {
+            sessionsPerUser.computeIfPresent(username, (user, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private void evictExpiredSessions() {
+        long now = System.nanoTime();
+        long idleTimeout = properties.getIdleTimeout().toNanos();
+        long maxDuration = properties.getMaxDuration().toNanos();
+        for (SshSessionInstance session : sessions.keySet()) {
+            if (maxDuration > 0 && now - session.getStartTime() > maxDuration) {
+                if (session.evict(MAX_DURATION_MESSAGE)) {
+                    durationEvictions.incrementAndGet();
+                }
+            } else if (idleTimeout > 0 && session.isAwaitingInput() && now - session.getLastActivity() > idleTimeout) {
+                if (session.evict(IDLE_TIMEOUT_MESSAGE)) {
+                    idleEvictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of sessions currently open, including sessions waiting for a free thread.
+     * @return live sessions
+     */
+    public int getLiveSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * Number of sessions turned away because the global or per user session limit was reached.
+     * @return limited sessions
+     */
+    public long getLimitedSessions() {
+        return limitedSessions.get();
+    }
+
+    /**
+     * Number of sessions closed after idling at the prompt for longer than the idle timeout.
+     * @return idle sessions evicted
+     */
+    public long getIdleEvictions() {
+        return idleEvictions.get();
+    }
+
+    /**
+     * Number of sessions closed after exceeding the maximum session duration.
+     * @return sessions evicted for their duration
+     */
+    public long getDurationEvictions() {
+        return durationEvictions.get();
+    }
+}
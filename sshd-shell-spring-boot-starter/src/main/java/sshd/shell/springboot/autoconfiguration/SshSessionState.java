@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import jline.console.ConsoleReader;
+import org.springframework.boot.ansi.AnsiColor;
+
+/**
+ * State of a shell session, bound to the thread serving the session by {@link SshSessionContext}. Items used by every
+ * command are plain fields; attributes set by commands live in a map that is only created on first use. A session's
+ * state is owned by one thread at a time, work handed to other threads gets its own copy. Copies share the lock that
+ * keeps lines written by different threads apart, as the writer itself is replaced after a command is interrupted.
+ *
+ * @author anand
+ */
+final class SshSessionState {
+
+    ConsoleReader consoleReader;
+    AnsiColor textColor;
+    String textColorPrefix;
+    PrintWriter writer;
+    Object outputLock = new Object();
+    CountingWriter outputCounter;
+    CoalescingWriter outputBuffer;
+    Collection<String> userRoles;
+    CommandIndex.View commandView;
+    JobControl jobControl;
+    boolean failed;
+    private Map<String, Object> attributes;
+
+    @SuppressWarnings("unchecked")
+    <T> T getAttribute(String name) {
+        return Objects.isNull(attributes) ? null : (T) attributes.get(name);
+    }
+
+    void setAttribute(String name, Object value) {
+        if (Objects.isNull(attributes)) {
+            attributes = new HashMap<>();
+        }
+        attributes.put(name, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T removeAttribute(String name) {
+        return Objects.isNull(attributes) ? null : (T) attributes.remove(name);
+    }
+
+    boolean hasAttribute(String name) {
+        return Objects.nonNull(attributes) && attributes.containsKey(name);
+    }
+
+    boolean isEmpty() {
+        return Objects.isNull(consoleReader) && Objects.isNull(textColor) && Objects.isNull(textColorPrefix)
+                && Objects.isNull(writer) && Objects.isNull(outputBuffer) && Objects.isNull(userRoles)
+                && Objects.isNull(commandView) && Objects.isNull(jobControl)
+                && (Objects.isNull(attributes) || attributes.isEmpty());
+    }
+
+    SshSessionState copy() {
+        SshSessionState copy = new SshSessionState();
+        copy.consoleReader = consoleReader;
+        copy.textColor = textColor;
+        copy.textColorPrefix = textColorPrefix;
+        copy.writer = writer;
+        copy.outputLock = outputLock;
+        copy.outputCounter = outputCounter;
+        copy.outputBuffer = outputBuffer;
+        copy.userRoles = userRoles;
+        copy.commandView = commandView;
+        copy.jobControl = jobControl;
+        copy.attributes = Objects.isNull(attributes) ? null : new HashMap<>(attributes);
+        return copy;
+    }
+}
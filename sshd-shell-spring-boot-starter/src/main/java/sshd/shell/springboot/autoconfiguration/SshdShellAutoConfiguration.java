@@ -18,16 +18,16 @@
  */
 package sshd.shell.springboot.autoconfiguration;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
-import org.apache.sshd.common.Factory;
-import org.apache.sshd.server.Command;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.Banner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationContext;
@@ -36,6 +36,7 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskDecorator;
 
 /**
  *
@@ -54,15 +55,49 @@ class SshdShellAutoConfiguration {
     private ApplicationContext appContext;
     @Autowired
     private Environment environment;
+    @Autowired(required = false)
+    private List<CommandExecutionListener> commandExecutionListeners = Collections.emptyList();
 
     @Bean
     Banner shellBanner() {
         return new ShellBanner(environment);
     }
     
+    @Bean(destroyMethod = "shutdown")
+    SshSessionExecutor sshSessionExecutor() {
+        return new SshSessionExecutor(properties.getShell().getSession().getExecutor(),
+                properties.getShell().getJobs());
+    }
+
+    /**
+     * Opt-in, as a TaskDecorator bean may be applied to every task executor of the application.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "sshd.shell.taskDecorator", havingValue = "true")
+    @ConditionalOnMissingBean(TaskDecorator.class)
+    TaskDecorator sshSessionContextTaskDecorator() {
+        return new SshSessionContextTaskDecorator();
+    }
+
     @Bean
-    Factory<Command> sshSessionFactory() throws NoSuchMethodException, InterruptedException {
-        return new SshSessionFactory(properties, sshdShellCommands(), environment, shellBanner());
+    SshSessionRegistry sshSessionRegistry() {
+        return new SshSessionRegistry(properties.getShell().getSession(), sshSessionExecutor());
+    }
+
+    @Bean
+    SshSessionFactory sshSessionFactory() throws NoSuchMethodException, InterruptedException {
+        return new SshSessionFactory(properties, commandIndex(), environment, shellBanner(), sshSessionExecutor(),
+                sshSessionRegistry(), commandExecutionListeners, sshdTransportStats());
+    }
+
+    @Bean
+    SshdTransportStats sshdTransportStats() {
+        return new SshdTransportStats();
+    }
+
+    @Bean
+    CommandIndex commandIndex() throws NoSuchMethodException, InterruptedException {
+        return new CommandIndex(sshdShellCommands());
     }
 
     @Bean
@@ -115,25 +150,7 @@ class SshdShellAutoConfiguration {
     }
 
     private CommandExecutableDetails getMethodSupplier(SshdShellCommand annotation, Method method, Object obj) {
-        return new CommandExecutableDetails(annotation, arg -> {
-            try {
-                return (String) method.invoke(obj, arg);
-            } catch (InvocationTargetException ex) {
-                if (ex.getCause() instanceof InterruptedException) {
-                    throw (InterruptedException) ex.getCause();
-                } else {
-                    return getErrorInfo(ex.getCause());
-                }
-            } catch (IllegalAccessException | IllegalArgumentException ex) {
-                return getErrorInfo(ex);
-            }
-        });
-    }
-
-    private String getErrorInfo(Throwable ex) {
-        log.error("Error performing method invocation", ex);
-        return "Error performing method invocation\r\n" + (log.isDebugEnabled() ? ex
-                : "Please check server logs for more information");
+        return new CommandExecutableDetails(annotation, new MethodHandleCommandExecutor(method, obj));
     }
 
     private void loadMethodLevelCommandSupplier(Class<?> clazz, Map<String, CommandExecutableDetails> map, Object obj)
@@ -18,10 +18,14 @@
  */
 package sshd.shell.springboot.autoconfiguration;
 
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
 import org.springframework.boot.ansi.AnsiColor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.convert.DurationUnit;
 
 /**
+ * Time properties are Durations, e.g. 5s or 500ms; plain numbers are in the unit given by their DurationUnit.
  *
  * @author anand
  */
@@ -46,9 +50,15 @@ public class SshdShellProperties {
         private String publicKeyFile;
         private String host = "127.0.0.1";
         private String hostKeyFile = "hostKey.ser";
+        private boolean taskDecorator = false;
         private final Prompt prompt = new Prompt();
         private final Text text = new Text();
         private final Auth auth = new Auth();
+        private final Session session = new Session();
+        private final Output output = new Output();
+        private final Health health = new Health();
+        private final Transport transport = new Transport();
+        private final Jobs jobs = new Jobs();
 
         @lombok.Data
         public static class Prompt {
@@ -68,6 +78,101 @@ public class SshdShellProperties {
 
             private AuthType authType = AuthType.SIMPLE;
             private String authProviderBeanName;
+            private final Cache cache = new Cache();
+            private final Async async = new Async();
+            private final RateLimit rateLimit = new RateLimit();
+
+            @lombok.Data
+            public static class Cache {
+
+                private boolean enabled = false;
+                private int maxSize = 1000;
+                @DurationUnit(ChronoUnit.SECONDS)
+                private Duration ttl = Duration.ofSeconds(300);
+            }
+
+            @lombok.Data
+            public static class Async {
+
+                private boolean enabled = false;
+                private int maxConcurrent = 8;
+                private int queueCapacity = 32;
+                @DurationUnit(ChronoUnit.MILLIS)
+                private Duration timeout = Duration.ofMillis(10000);
+            }
+
+            @lombok.Data
+            public static class RateLimit {
+
+                private boolean enabled = false;
+                private int addressAttempts = 20;
+                private int userAttempts = 10;
+                @DurationUnit(ChronoUnit.SECONDS)
+                private Duration period = Duration.ofSeconds(60);
+                private int maxKeys = 10000;
+            }
+        }
+
+        @lombok.Data
+        public static class Session {
+
+            private int maxSessions = 0;
+            private int maxSessionsPerUser = 0;
+            @DurationUnit(ChronoUnit.SECONDS)
+            private Duration idleTimeout = Duration.ZERO;
+            @DurationUnit(ChronoUnit.SECONDS)
+            private Duration maxDuration = Duration.ZERO;
+            private String limitMessage = "Too many sessions. Please try again later";
+            private final Executor executor = new Executor();
+
+            @lombok.Data
+            public static class Executor {
+
+                private int poolSize = 50;
+                private int queueCapacity = 0;
+                @DurationUnit(ChronoUnit.SECONDS)
+                private Duration keepAlive = Duration.ofSeconds(60);
+                private boolean virtualThreads = false;
+                private String busyMessage = "Server busy. Please try again later";
+            }
+        }
+
+        @lombok.Data
+        public static class Output {
+
+            private boolean buffered = false;
+            private int bufferSize = 8192;
+            @DurationUnit(ChronoUnit.MILLIS)
+            private Duration flushInterval = Duration.ofMillis(20);
+        }
+
+        @lombok.Data
+        public static class Health {
+
+            @DurationUnit(ChronoUnit.MILLIS)
+            private Duration timeout = Duration.ofMillis(5000);
+            @DurationUnit(ChronoUnit.MILLIS)
+            private Duration cacheTtl = Duration.ZERO;
+        }
+
+        @lombok.Data
+        public static class Transport {
+
+            private String type;
+            private int ioThreads = 0;
+            private Boolean tcpNoDelay;
+            private Boolean keepAlive;
+            private Integer receiveBufferSize;
+            private Integer sendBufferSize;
+            private Integer backlog;
+        }
+
+        @lombok.Data
+        public static class Jobs {
+
+            private int poolSize = 10;
+            private int maxPerSession = 5;
+            private int outputLimit = 65536;
         }
     }
 }
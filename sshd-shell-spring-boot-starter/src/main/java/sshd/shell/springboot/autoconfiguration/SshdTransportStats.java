@@ -0,0 +1,277 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.sshd.common.AttributeStore.AttributeKey;
+import org.apache.sshd.common.kex.KexProposalOption;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.session.SessionListener;
+import org.apache.sshd.server.auth.password.PasswordAuthenticator;
+import org.apache.sshd.server.auth.pubkey.PublickeyAuthenticator;
+
+/**
+ * Statistics of the SSH transport: sessions, handshake and key exchange durations, authentication latency per
+ * authentication type and the bytes exchanged over shell and exec channels. Everything is counted with adders
+ * updated by the I/O and session threads and only summed up when read, e.g. by metrics or the 'shell stats' command.
+ *
+ * @author anand
+ */
+public class SshdTransportStats implements SessionListener {
+
+    public static final String PUBLIC_KEY = "publickey";
+    public static final String SHELL = "shell";
+    public static final String EXEC = "exec";
+    private static final AttributeKey<Long> CREATED = new AttributeKey<>();
+    private static final AttributeKey<Long> KEX_STARTED = new AttributeKey<>();
+
+    private final AtomicInteger openSessions = new AtomicInteger();
+    private final AtomicLong createdSessions = new AtomicLong();
+    private final AtomicLong authenticatedSessions = new AtomicLong();
+    private final AtomicLong negotiationFailures = new AtomicLong();
+    private final AtomicLong sessionErrors = new AtomicLong();
+    @lombok.Getter
+    private final Timing handshakes = new Timing();
+    @lombok.Getter
+    private final Timing keyExchanges = new Timing();
+    @lombok.Getter
+    private final Map<String, Authentication> authentications;
+    @lombok.Getter
+    private final Map<String, Traffic> channels;
+
+    SshdTransportStats() {
+        Map<String, Authentication> authenticationMap = new LinkedHashMap<>();
+        for (SshdShellProperties.AuthType authType : SshdShellProperties.AuthType.values()) {
+            authenticationMap.put(authType.name().toLowerCase(Locale.ROOT), new Authentication());
+        }
+        authenticationMap.put(PUBLIC_KEY, new Authentication());
+        authentications = Collections.unmodifiableMap(authenticationMap);
+        Map<String, Traffic> channelMap = new LinkedHashMap<>();
+        channelMap.put(SHELL, new Traffic());
+        channelMap.put(EXEC, new Traffic());
+        channels = Collections.unmodifiableMap(channelMap);
+    }
+
+    @Override
+    public void sessionCreated(Session session) {
+        session.setAttribute(CREATED, System.nanoTime());
+        openSessions.incrementAndGet();
+        createdSessions.incrementAndGet();
+    }
+
+    @Override
+    public void sessionNegotiationStart(Session session, Map<KexProposalOption, String> clientProposal,
+            Map<KexProposalOption, String> serverProposal) {
+        session.setAttribute(KEX_STARTED, System.nanoTime());
+    }
+
+    @Override
+    public void sessionNegotiationEnd(Session session, Map<KexProposalOption, String> clientProposal,
+            Map<KexProposalOption, String> serverProposal, Map<KexProposalOption, String> negotiatedOptions,
+            Throwable reason) {
+        if (Objects.nonNull(reason)) {
+            negotiationFailures.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void sessionEvent(Session session, Event event) {
+        if (event == Event.KeyEstablished) {
+            long now = System.nanoTime();
+            record(keyExchanges, session.removeAttribute(KEX_STARTED), now);
+            record(handshakes, session.removeAttribute(CREATED), now); // Only the first key exchange completes it
+        } else if (event == Event.Authenticated) {
+            authenticatedSessions.incrementAndGet();
+        }
+    }
+
+    private static void record(Timing timing, Long start, long end) {
+        if (Objects.nonNull(start)) {
+            timing.record(end - start);
+        }
+    }
+
+    @Override
+    public void sessionException(Session session, Throwable t) {
+        sessionErrors.incrementAndGet();
+    }
+
+    @Override
+    public void sessionClosed(Session session) {
+        openSessions.decrementAndGet();
+    }
+
+    /**
+     * Times the verification of passwords.
+     * @param authenticator password authenticator
+     * @param authType authentication type the authenticator implements
+     * @return timed password authenticator
+     */
+    public PasswordAuthenticator decorate(PasswordAuthenticator authenticator, SshdShellProperties.AuthType authType) {
+        Authentication authentication = authentications.get(authType.name().toLowerCase(Locale.ROOT));
+        return (username, password, session) -> {
+            long start = System.nanoTime();
+            boolean authenticated = false;
+            try {
+                authenticated = authenticator.authenticate(username, password, session);
+                return authenticated;
+            } finally {
+                authentication.record(System.nanoTime() - start, authenticated);
+            }
+        };
+    }
+
+    /**
+     * Times the verification of public keys. Clients offering a key usually cause two verifications, one before and
+     * one after they sign the key.
+     * @param authenticator public key authenticator
+     * @return timed public key authenticator
+     */
+    public PublickeyAuthenticator decorate(PublickeyAuthenticator authenticator) {
+        Authentication authentication = authentications.get(PUBLIC_KEY);
+        return (username, key, session) -> {
+            long start = System.nanoTime();
+            boolean authenticated = false;
+            try {
+                authenticated = authenticator.authenticate(username, key, session);
+                return authenticated;
+            } finally {
+                authentication.record(System.nanoTime() - start, authenticated);
+            }
+        };
+    }
+
+    /**
+     * Number of SSH sessions currently connected, authenticated or not.
+     * @return open sessions
+     */
+    public int getOpenSessions() {
+        return openSessions.get();
+    }
+
+    /**
+     * Number of SSH sessions connected since startup.
+     * @return created sessions
+     */
+    public long getCreatedSessions() {
+        return createdSessions.get();
+    }
+
+    /**
+     * Number of SSH sessions that authenticated successfully.
+     * @return authenticated sessions
+     */
+    public long getAuthenticatedSessions() {
+        return authenticatedSessions.get();
+    }
+
+    /**
+     * Number of key exchanges that failed to agree on algorithms.
+     * @return failed negotiations
+     */
+    public long getNegotiationFailures() {
+        return negotiationFailures.get();
+    }
+
+    /**
+     * Number of exceptions that ended SSH sessions, including connections reset by clients.
+     * @return session errors
+     */
+    public long getSessionErrors() {
+        return sessionErrors.get();
+    }
+
+    public static class Timing {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getTotalTime(TimeUnit unit) {
+            return (double) totalNanos.sum() / unit.toNanos(1);
+        }
+
+        public double getMax(TimeUnit unit) {
+            return (double) maxNanos.get() / unit.toNanos(1);
+        }
+    }
+
+    public static final class Authentication extends Timing {
+
+        private final LongAdder failures = new LongAdder();
+
+        void record(long nanos, boolean authenticated) {
+            record(nanos);
+            if (!authenticated) {
+                failures.increment();
+            }
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+    }
+
+    public static final class Traffic {
+
+        private final LongAdder channels = new LongAdder();
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder bytesWritten = new LongAdder();
+
+        void channelOpened() {
+            channels.increment();
+        }
+
+        void read(int bytes) {
+            bytesRead.add(bytes);
+        }
+
+        void written(int bytes) {
+            bytesWritten.add(bytes);
+        }
+
+        public long getChannels() {
+            return channels.sum();
+        }
+
+        public long getBytesRead() {
+            return bytesRead.sum();
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten.sum();
+        }
+    }
+}
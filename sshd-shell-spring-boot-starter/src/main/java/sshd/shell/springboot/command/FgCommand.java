@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.command;
+
+import java.util.Objects;
+import org.springframework.stereotype.Component;
+import sshd.shell.springboot.autoconfiguration.JobControl;
+import sshd.shell.springboot.autoconfiguration.SshSessionContext;
+import sshd.shell.springboot.autoconfiguration.SshdShellCommand;
+
+/**
+ *
+ * @author anand
+ */
+@Component
+@SshdShellCommand(value = "fg", description = "Wait for a background job and show its output")
+public final class FgCommand {
+
+    public String fg(String arg) throws InterruptedException {
+        JobControl jobControl = SshSessionContext.get(SshSessionContext.JOB_CONTROL);
+        return Objects.isNull(jobControl) ? JobControl.unsupported() : jobControl.foreground(arg);
+    }
+}
@@ -21,23 +21,38 @@ import com.fasterxml.jackson.databind.ObjectWriter;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.autoconfigure.CompositeHealthIndicatorConfiguration;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.actuate.health.Status;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
+import sshd.shell.springboot.autoconfiguration.SshSessionContext;
 import sshd.shell.springboot.autoconfiguration.SshdShellCommand;
+import sshd.shell.springboot.autoconfiguration.SshdShellProperties;
 
 /**
+ * Health indicators are evaluated off the session thread, at most once at a time per indicator, and waited for up
+ * to a configurable timeout. Results are cached for a configurable time to live.
  *
  * @author anand
  */
@@ -47,12 +62,17 @@ import sshd.shell.springboot.autoconfiguration.SshdShellCommand;
 public class HealthCommand {
 
     private static final Pattern HEALTH_INDICATOR_PATTERN = Pattern.compile("(.*?)HealthIndicator");
+    private static final Status TIMEOUT = new Status("TIMEOUT");
     private final String helpMessage;
     private final Map<String, HealthIndicator> healthIndicatorMap;
     private final ObjectWriter objectWriter = new ObjectMapper().writer();
+    private final ConcurrentMap<String, HealthEvaluation> healthCache = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor healthExecutor;
+    private final long timeout;
+    private final long cacheTtl;
 
     @Autowired
-    public HealthCommand(List<HealthIndicator> healthIndicators) {
+    public HealthCommand(List<HealthIndicator> healthIndicators, SshdShellProperties properties) {
         healthIndicatorMap = healthIndicators.stream().collect(Collectors.toMap(healthIndicator -> {
             Matcher matcher = HEALTH_INDICATOR_PATTERN.matcher(healthIndicator.getClass().getSimpleName());
             Assert.isTrue(matcher.matches(), "HealthIndicator classes not matching pattern");
@@ -60,18 +80,35 @@ public class HealthCommand {
         }, Function.identity(), (v1, v2) -> v1, TreeMap::new));
         StringBuilder sb = new StringBuilder("Supported health indicators below:");
         healthIndicatorMap.keySet().forEach(key -> sb.append("\n\r\t").append(key));
-        helpMessage = sb.append("\n\rUsage: health show <health indicator>").toString();
+        helpMessage = sb.append("\n\rUsage: health show <health indicator> or health all").toString();
+        SshdShellProperties.Shell.Health props = properties.getShell().getHealth();
+        timeout = props.getTimeout().toNanos();
+        cacheTtl = props.getCacheTtl().toNanos();
+        // At most one evaluation is in flight per indicator, which bounds the number of threads
+        int poolSize = Math.max(1, healthIndicatorMap.size());
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sshd-health-");
+        threadFactory.setDaemon(true);
+        healthExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                threadFactory);
+        healthExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        healthExecutor.shutdownNow();
     }
 
     @SshdShellCommand(value = "show", description = "Display health services")
-    public final String show(String arg) throws JsonProcessingException {
+    public final String show(String arg) throws JsonProcessingException, InterruptedException {
         if (StringUtils.isEmpty(arg)) {
+            SshSessionContext.markFailed();
             return helpMessage;
         }
         if (!healthIndicatorMap.containsKey(arg)) {
+            SshSessionContext.markFailed();
             return "Unsupported health indicator " + arg + "\n\r" + helpMessage;
         }
-        Health health = healthIndicatorMap.get(arg).health();
+        Health health = await(evaluate(arg), System.nanoTime() + timeout);
         Map<String, Object> map = new LinkedHashMap<>();
         if (health.getStatus() != Status.UNKNOWN) {
             map.put("status", health.getStatus().getCode());
@@ -79,4 +116,58 @@ public class HealthCommand {
         map.put(arg, health.getDetails());
         return objectWriter.writeValueAsString(map);
     }
+
+    @SshdShellCommand(value = "all", description = "Display health of all services")
+    public final String all(String arg) throws JsonProcessingException, InterruptedException {
+        long deadline = System.nanoTime() + timeout;
+        Map<String, CompletableFuture<Health>> evaluations = new LinkedHashMap<>();
+        healthIndicatorMap.keySet().forEach(name -> evaluations.put(name, evaluate(name)));
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<Health>> entry : evaluations.entrySet()) {
+            Health health = await(entry.getValue(), deadline);
+            Map<String, Object> healthMap = new LinkedHashMap<>();
+            if (health.getStatus() != Status.UNKNOWN) {
+                healthMap.put("status", health.getStatus().getCode());
+            }
+            if (!health.getDetails().isEmpty()) {
+                healthMap.put("details", health.getDetails()); // Nested, a detail named status must not clash
+            }
+            map.put(entry.getKey(), healthMap);
+        }
+        return objectWriter.writeValueAsString(map);
+    }
+
+    private CompletableFuture<Health> evaluate(String name) {
+        return healthCache.compute(name, (key, cached) -> Objects.nonNull(cached) && !cached.isExpired()
+                ? cached : new HealthEvaluation(healthIndicatorMap.get(key))).future;
+    }
+
+    private Health await(CompletableFuture<Health> evaluation, long deadline) throws InterruptedException {
+        try {
+            return evaluation.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            return Health.status(TIMEOUT).build();
+        } catch (ExecutionException ex) {
+            return Health.down().withException(ex.getCause()).build();
+        }
+    }
+
+    private class HealthEvaluation {
+
+        private final CompletableFuture<Health> future;
+        private volatile long expiresAt;
+        private volatile boolean completed;
+
+        HealthEvaluation(HealthIndicator healthIndicator) {
+            future = CompletableFuture.supplyAsync(healthIndicator::health, healthExecutor);
+            future.whenComplete((health, ex) -> {
+                expiresAt = System.nanoTime() + (Objects.isNull(ex) ? cacheTtl : 0);
+                completed = true;
+            });
+        }
+
+        boolean isExpired() {
+            return completed && System.nanoTime() - expiresAt >= 0;
+        }
+    }
 }
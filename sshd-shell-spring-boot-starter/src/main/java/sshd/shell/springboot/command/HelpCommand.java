@@ -15,12 +15,7 @@
  */
 package sshd.shell.springboot.command;
 
-import java.util.Collection;
-import java.util.Map;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
-import sshd.shell.springboot.autoconfiguration.CommandExecutableDetails;
 import sshd.shell.springboot.autoconfiguration.Constants;
 import sshd.shell.springboot.autoconfiguration.SshSessionContext;
 import sshd.shell.springboot.autoconfiguration.SshdShellCommand;
@@ -33,17 +28,7 @@ import sshd.shell.springboot.autoconfiguration.SshdShellCommand;
 @SshdShellCommand(value = Constants.HELP, description = "Show list of help commands")
 public final class HelpCommand {
 
-    @Autowired
-    @Lazy
-    private Map<String, Map<String, CommandExecutableDetails>> sshdShellCommands;
-
     public String help(String arg) {
-        StringBuilder sb = new StringBuilder("Supported Commands");
-        Collection<String> roles = SshSessionContext.<Collection<String>>get(Constants.USER_ROLES);
-        sshdShellCommands.entrySet().stream()
-                .filter(e -> e.getValue().get(Constants.EXECUTE).matchesRole(roles))
-                .forEach(e -> sb.append("\n\r").append(e.getKey()).append("\t\t")
-                .append(e.getValue().get(Constants.EXECUTE).getDescription()));
-        return sb.toString();
+        return SshSessionContext.get(SshSessionContext.COMMAND_VIEW).getHelp();
     }
 }
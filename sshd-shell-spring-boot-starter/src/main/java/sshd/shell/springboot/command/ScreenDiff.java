@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.command;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Renders frames of text rows on an ANSI terminal, sending only what changed since the previous frame. Unchanged rows
+ * are skipped and a changed row is rewritten from its first to its last differing character, so a dashboard whose
+ * figures tick over costs a few cursor movements per refresh instead of a full screen.
+ *
+ * @author anand
+ */
+class ScreenDiff {
+
+    private static final String CSI = "\033[";
+    private List<String> previous;
+
+    /**
+     * @param frame rows of the frame, without line separators
+     * @return escape sequences and text turning the previous frame into this one, leaving the cursor below it
+     */
+    String render(List<String> frame) {
+        StringBuilder sb = new StringBuilder();
+        List<String> before = previous;
+        if (Objects.isNull(before)) {
+            sb.append(CSI).append("2J");
+            before = Collections.emptyList();
+        }
+        for (int row = 0; row < Math.max(frame.size(), before.size()); row++) {
+            String now = row < frame.size() ? frame.get(row) : "";
+            String old = row < before.size() ? before.get(row) : "";
+            if (!now.equals(old)) {
+                renderRow(sb, row, now, old);
+            }
+        }
+        moveTo(sb, frame.size(), 0);
+        previous = frame;
+        return sb.toString();
+    }
+
+    private static void renderRow(StringBuilder sb, int row, String now, String old) {
+        int common = Math.min(now.length(), old.length());
+        int start = 0;
+        while (start < common && now.charAt(start) == old.charAt(start)) {
+            start++;
+        }
+        int end = now.length();
+        if (now.length() == old.length()) {
+            while (end > start && now.charAt(end - 1) == old.charAt(end - 1)) {
+                end--;
+            }
+        }
+        moveTo(sb, row, start).append(now, start, end);
+        if (now.length() < old.length()) {
+            sb.append(CSI).append('K');
+        }
+    }
+
+    private static StringBuilder moveTo(StringBuilder sb, int row, int column) {
+        return sb.append(CSI).append(row + 1).append(';').append(column + 1).append('H');
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.command;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import sshd.shell.springboot.autoconfiguration.SshSessionExecutor;
+import sshd.shell.springboot.autoconfiguration.SshSessionRegistry;
+import sshd.shell.springboot.autoconfiguration.SshdShellCommand;
+import sshd.shell.springboot.autoconfiguration.SshdTransportStats;
+
+/**
+ *
+ * @author anand
+ */
+@Component
+@SshdShellCommand(value = "shell", description = "SSH shell server")
+public final class ShellCommand {
+
+    private final SshdTransportStats transportStats;
+    private final SshSessionExecutor sessionExecutor;
+    private final SshSessionRegistry sessionRegistry;
+
+    @Autowired
+    ShellCommand(SshdTransportStats transportStats, SshSessionExecutor sessionExecutor,
+            SshSessionRegistry sessionRegistry) {
+        this.transportStats = transportStats;
+        this.sessionExecutor = sessionExecutor;
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    @SshdShellCommand(value = "stats", description = "SSH transport and session statistics")
+    public String stats(String arg) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-16s open %d, created %d, authenticated %d, negotiation failures %d, errors %d",
+                "SSH sessions", transportStats.getOpenSessions(), transportStats.getCreatedSessions(),
+                transportStats.getAuthenticatedSessions(), transportStats.getNegotiationFailures(),
+                transportStats.getSessionErrors()));
+        appendTiming(sb, "Handshake", transportStats.getHandshakes());
+        appendTiming(sb, "Key exchange", transportStats.getKeyExchanges());
+        for (Map.Entry<String, SshdTransportStats.Authentication> entry
+                : transportStats.getAuthentications().entrySet()) {
+            appendTiming(sb, "Auth " + entry.getKey(), entry.getValue());
+            sb.append(", failed ").append(entry.getValue().getFailures());
+        }
+        transportStats.getChannels().forEach((type, traffic) -> sb.append(String.format(
+                "\n\r%-16s channels %d, bytes read %d, bytes written %d", "Channel " + type, traffic.getChannels(),
+                traffic.getBytesRead(), traffic.getBytesWritten())));
+        sb.append(String.format("\n\r%-16s live %d, active %d, queued %d, rejected %d, limited %d", "Shell sessions",
+                sessionRegistry.getLiveSessions(), sessionExecutor.getActiveSessions(),
+                sessionExecutor.getQueuedSessions(), sessionExecutor.getRejectedSessions(),
+                sessionRegistry.getLimitedSessions()));
+        return sb.toString();
+    }
+
+    private static void appendTiming(StringBuilder sb, String name, SshdTransportStats.Timing timing) {
+        long count = timing.getCount();
+        sb.append(String.format("\n\r%-16s count %d, avg %.1f ms, max %.1f ms", name, count,
+                count == 0 ? 0 : timing.getTotalTime(TimeUnit.MILLISECONDS) / count,
+                timing.getMax(TimeUnit.MILLISECONDS)));
+    }
+}
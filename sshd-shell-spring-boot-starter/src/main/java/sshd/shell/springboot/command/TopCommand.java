@@ -0,0 +1,230 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.command;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.RuntimeMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Component;
+import sshd.shell.springboot.autoconfiguration.SshSessionContext;
+import sshd.shell.springboot.autoconfiguration.SshdShellCommand;
+
+/**
+ * Dashboard of CPU, memory, GC and the busiest threads, refreshed in place until interrupted with Ctrl-C. Each frame
+ * shows the activity since the previous one; thread CPU times are diffed against the previous sample and only the
+ * busiest threads are looked up by name. Outside an interactive shell frames are printed one after another instead.
+ *
+ * @author anand
+ */
+@Component
+@SshdShellCommand(value = "top", description = "Live view of CPU, memory, GC and the busiest threads")
+public final class TopCommand {
+
+    static final String USAGE = "Usage: top [-d <seconds between refreshes>] [-n <number of refreshes>]";
+    private static final long DEFAULT_DELAY_MILLIS = 2000;
+    private static final long FIRST_SAMPLE_MILLIS = 500;
+    private static final int THREAD_ROWS = 10;
+
+    public String top(String arg) throws InterruptedException {
+        boolean interactive = SshSessionContext.isInteractive();
+        long delay = DEFAULT_DELAY_MILLIS;
+        int iterations = interactive ? 0 : 1;
+        String[] options = Objects.isNull(arg) || arg.trim().isEmpty() ? new String[0] : arg.trim().split("\\s+");
+        try {
+            for (int i = 0; i < options.length; i += 2) {
+                if (i + 1 == options.length) {
+                    return usage();
+                } else if ("-d".equals(options[i])) {
+                    delay = (long) (Double.parseDouble(options[i + 1]) * 1000);
+                } else if ("-n".equals(options[i])) {
+                    iterations = Integer.parseInt(options[i + 1]);
+                } else {
+                    return usage();
+                }
+            }
+        } catch (NumberFormatException ex) {
+            return usage();
+        }
+        if (delay <= 0 || iterations < 0) {
+            return usage();
+        }
+        Sampler sampler = new Sampler();
+        ScreenDiff screen = interactive ? new ScreenDiff() : null;
+        TimeUnit.MILLISECONDS.sleep(Math.min(delay, FIRST_SAMPLE_MILLIS));
+        for (int i = 1;; i++) {
+            List<String> frame = sampler.sample();
+            String output = interactive ? screen.render(frame) : String.join("\n\r", frame);
+            if (i == iterations) {
+                return output;
+            }
+            SshSessionContext.writeOutput(interactive ? output : output + "\n\r");
+            TimeUnit.MILLISECONDS.sleep(delay);
+        }
+    }
+
+    private static String usage() {
+        SshSessionContext.markFailed();
+        return USAGE;
+    }
+
+    /**
+     * Samples of a single top session, each computing deltas against the previous one.
+     */
+    private static class Sampler {
+
+        private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        private final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        private final RuntimeMXBean runtimeBean = ManagementFactory.getRuntimeMXBean();
+        private final List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+        private final boolean threadCpuTime = threadBean.isThreadCpuTimeSupported()
+                && threadBean.isThreadCpuTimeEnabled();
+        private final long[] gcCounts = new long[gcBeans.size()];
+        private final long[] gcTimes = new long[gcBeans.size()];
+        private Map<Long, Long> threadCpuTimes = new HashMap<>();
+        private long processCpuTime;
+        private long sampledAt;
+
+        Sampler() {
+            sampledAt = System.nanoTime();
+            processCpuTime = processCpuTime();
+            for (int i = 0; i < gcBeans.size(); i++) {
+                gcCounts[i] = gcBeans.get(i).getCollectionCount();
+                gcTimes[i] = gcBeans.get(i).getCollectionTime();
+            }
+            if (threadCpuTime) {
+                for (long id : threadBean.getAllThreadIds()) {
+                    threadCpuTimes.put(id, threadBean.getThreadCpuTime(id));
+                }
+            }
+        }
+
+        List<String> sample() {
+            long now = System.nanoTime();
+            long elapsed = Math.max(1, now - sampledAt);
+            sampledAt = now;
+            List<String> frame = new ArrayList<>();
+            frame.add(String.format("top - up %s, %d cpus, load average %s", uptime(), osBean.getAvailableProcessors(),
+                    osBean.getSystemLoadAverage() < 0 ? "n/a" : String.format("%.2f", osBean.getSystemLoadAverage())));
+            frame.add(String.format("CPU: process %s, system %s", processCpu(elapsed), systemCpu()));
+            MemoryUsage heap = memoryBean.getHeapMemoryUsage();
+            frame.add(String.format("Memory: heap %s used, %s committed, %s max; non-heap %s used",
+                    size(heap.getUsed()), size(heap.getCommitted()), size(heap.getMax()),
+                    size(memoryBean.getNonHeapMemoryUsage().getUsed())));
+            frame.add(gc());
+            frame.add(String.format("Threads: %d live, %d daemon, %d peak", threadBean.getThreadCount(),
+                    threadBean.getDaemonThreadCount(), threadBean.getPeakThreadCount()));
+            frame.add("");
+            if (threadCpuTime) {
+                frame.add(String.format("%8s %6s  %-13s  %s", "TID", "CPU%", "STATE", "NAME"));
+                busiestThreads(elapsed, frame);
+            } else {
+                frame.add("Thread CPU time measurement is not available");
+            }
+            return frame;
+        }
+
+        private String uptime() {
+            long seconds = TimeUnit.MILLISECONDS.toSeconds(runtimeBean.getUptime());
+            String time = String.format("%d:%02d:%02d", seconds / 3600 % 24, seconds / 60 % 60, seconds % 60);
+            return seconds < TimeUnit.DAYS.toSeconds(1) ? time : TimeUnit.SECONDS.toDays(seconds) + " days " + time;
+        }
+
+        private long processCpuTime() {
+            return osBean instanceof com.sun.management.OperatingSystemMXBean
+                    ? ((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuTime() : -1;
+        }
+
+        private String processCpu(long elapsed) {
+            long previous = processCpuTime;
+            processCpuTime = processCpuTime();
+            return previous < 0 || processCpuTime < 0 ? "n/a" : String.format("%.1f%%",
+                    100.0 * (processCpuTime - previous) / elapsed / osBean.getAvailableProcessors());
+        }
+
+        private String systemCpu() {
+            double load = osBean instanceof com.sun.management.OperatingSystemMXBean
+                    ? ((com.sun.management.OperatingSystemMXBean) osBean).getSystemCpuLoad() : -1;
+            return load < 0 ? "n/a" : String.format("%.1f%%", 100 * load);
+        }
+
+        private String gc() {
+            StringBuilder sb = new StringBuilder("GC:");
+            for (int i = 0; i < gcBeans.size(); i++) {
+                long count = gcBeans.get(i).getCollectionCount();
+                long time = gcBeans.get(i).getCollectionTime();
+                sb.append(i == 0 ? " " : ", ").append(gcBeans.get(i).getName()).append(' ')
+                        .append(count - gcCounts[i]).append(" in ").append(time - gcTimes[i]).append(" ms");
+                gcCounts[i] = count;
+                gcTimes[i] = time;
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Threads started since the previous sample are charged with all their CPU time, threads that ended are
+         * dropped from the next sample.
+         */
+        private void busiestThreads(long elapsed, List<String> frame) {
+            long[] ids = threadBean.getAllThreadIds();
+            Map<Long, Long> cpuTimes = new HashMap<>(ids.length * 2);
+            List<long[]> deltas = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                long cpuTime = threadBean.getThreadCpuTime(id);
+                if (cpuTime >= 0) {
+                    cpuTimes.put(id, cpuTime);
+                    deltas.add(new long[]{id, cpuTime - threadCpuTimes.getOrDefault(id, 0L)});
+                }
+            }
+            threadCpuTimes = cpuTimes;
+            deltas.sort((a, b) -> Long.compare(b[1], a[1]));
+            List<long[]> busiest = deltas.subList(0, Math.min(THREAD_ROWS, deltas.size()));
+            long[] busiestIds = busiest.stream().mapToLong(delta -> delta[0]).toArray();
+            ThreadInfo[] infos = threadBean.getThreadInfo(busiestIds);
+            for (int i = 0; i < infos.length; i++) {
+                if (Objects.nonNull(infos[i])) {
+                    frame.add(String.format("%8d %6.1f  %-13s  %s", busiestIds[i], 100.0 * busiest.get(i)[1] / elapsed,
+                            infos[i].getThreadState(), infos[i].getThreadName()));
+                }
+            }
+        }
+
+        private static String size(long bytes) {
+            if (bytes < 0) {
+                return "n/a";
+            }
+            double size = bytes;
+            String units = "KMGT";
+            int unit = -1;
+            while (size >= 1024 && unit < units.length() - 1) {
+                size /= 1024;
+                unit++;
+            }
+            return unit < 0 ? bytes + "B" : String.format("%.1f%s", size, units.charAt(unit));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.stereotype.Component;
+import sshd.shell.springboot.autoconfiguration.CommandExecutionListener;
+
+/**
+ * Times shell commands per command, subcommand and outcome, and records how much output they write. Meters are
+ * created on first execution of a command and looked up by a single map access afterwards; they are registered in a
+ * composite so that meters created before a registry is bound still record into it from then on.
+ *
+ * @author anand
+ */
+@Component
+@ConditionalOnClass(MeterBinder.class)
+class CommandMetrics implements MeterBinder, CommandExecutionListener {
+
+    private static final String NO_SUBCOMMAND = "none";
+    private final CompositeMeterRegistry registry = new CompositeMeterRegistry();
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DistributionSummary> outputs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> denials = new ConcurrentHashMap<>();
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry.add(registry);
+    }
+
+    @Override
+    public void commandExecuted(String command, String subcommand, Outcome outcome, long durationNanos,
+            long outputCharacters) {
+        String sub = Objects.isNull(subcommand) ? NO_SUBCOMMAND : subcommand;
+        String key = command + ' ' + sub;
+        if (outcome == Outcome.PERMISSION_DENIED) {
+            denials.computeIfAbsent(key, k -> Counter.builder("sshd.shell.command.denied")
+                    .description("Shell commands refused for lack of permission")
+                    .tags("command", command, "subcommand", sub).register(registry)).increment();
+            return;
+        }
+        String outcomeTag = outcome.name().toLowerCase(Locale.ROOT);
+        timers.computeIfAbsent(key + ' ' + outcomeTag, k -> Timer.builder("sshd.shell.command")
+                .description("Execution time of shell commands, including writing their output")
+                .tags("command", command, "subcommand", sub, "outcome", outcomeTag)
+                .publishPercentileHistogram().register(registry)).record(durationNanos, TimeUnit.NANOSECONDS);
+        outputs.computeIfAbsent(key, k -> DistributionSummary.builder("sshd.shell.command.output")
+                .description("Output written by shell commands").baseUnit("characters")
+                .tags("command", command, "subcommand", sub).register(registry)).record(outputCharacters);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.stereotype.Component;
+import sshd.shell.springboot.autoconfiguration.SshSessionExecutor;
+
+/**
+ *
+ * @author anand
+ */
+@Component
+@ConditionalOnClass(MeterBinder.class)
+class SshSessionExecutorMetrics implements MeterBinder {
+
+    private final SshSessionExecutor sessionExecutor;
+
+    @Autowired
+    SshSessionExecutorMetrics(SshSessionExecutor sessionExecutor) {
+        this.sessionExecutor = sessionExecutor;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sshd.shell.sessions.active", sessionExecutor, SshSessionExecutor::getActiveSessions)
+                .description("SSH shell sessions currently being served").register(registry);
+        Gauge.builder("sshd.shell.sessions.queued", sessionExecutor, SshSessionExecutor::getQueuedSessions)
+                .description("SSH shell sessions waiting for a free thread").register(registry);
+        FunctionCounter.builder("sshd.shell.sessions.rejected", sessionExecutor,
+                SshSessionExecutor::getRejectedSessions)
+                .description("SSH shell sessions rejected because the server was busy").register(registry);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.stereotype.Component;
+import sshd.shell.springboot.autoconfiguration.SshSessionRegistry;
+
+/**
+ *
+ * @author anand
+ */
+@Component
+@ConditionalOnClass(MeterBinder.class)
+class SshSessionRegistryMetrics implements MeterBinder {
+
+    private final SshSessionRegistry sessionRegistry;
+
+    @Autowired
+    SshSessionRegistryMetrics(SshSessionRegistry sessionRegistry) {
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sshd.shell.sessions.live", sessionRegistry, SshSessionRegistry::getLiveSessions)
+                .description("SSH shell sessions currently open").register(registry);
+        FunctionCounter.builder("sshd.shell.sessions.limited", sessionRegistry,
+                SshSessionRegistry::getLimitedSessions)
+                .description("SSH shell sessions rejected by the global or per user session limit")
+                .register(registry);
+        FunctionCounter.builder("sshd.shell.sessions.evicted", sessionRegistry, SshSessionRegistry::getIdleEvictions)
+                .tag("reason", "idle").description("SSH shell sessions closed by the server").register(registry);
+        FunctionCounter.builder("sshd.shell.sessions.evicted", sessionRegistry,
+                SshSessionRegistry::getDurationEvictions)
+                .tag("reason", "duration").description("SSH shell sessions closed by the server").register(registry);
+    }
+}
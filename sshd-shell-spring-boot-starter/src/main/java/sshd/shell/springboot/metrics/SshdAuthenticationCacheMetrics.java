@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import sshd.shell.springboot.server.SshdAuthenticationCache;
+
+/**
+ *
+ * @author anand
+ */
+@Component
+@ConditionalOnClass(MeterBinder.class)
+@ConditionalOnProperty(name = "sshd.shell.auth.cache.enabled", havingValue = "true")
+class SshdAuthenticationCacheMetrics implements MeterBinder {
+
+    private final SshdAuthenticationCache authCache;
+
+    @Autowired
+    SshdAuthenticationCacheMetrics(SshdAuthenticationCache authCache) {
+        this.authCache = authCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sshd.shell.auth.cache.hits", authCache, SshdAuthenticationCache::getHits)
+                .description("Logins served from the authentication cache").register(registry);
+        FunctionCounter.builder("sshd.shell.auth.cache.misses", authCache, SshdAuthenticationCache::getMisses)
+                .description("Logins delegated to the authentication provider").register(registry);
+        Gauge.builder("sshd.shell.auth.cache.size", authCache, SshdAuthenticationCache::size)
+                .description("Cached authentications").register(registry);
+    }
+}
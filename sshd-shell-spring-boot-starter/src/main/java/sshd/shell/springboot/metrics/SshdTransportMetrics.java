@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.stereotype.Component;
+import sshd.shell.springboot.autoconfiguration.SshdTransportStats;
+
+/**
+ *
+ * @author anand
+ */
+@Component
+@ConditionalOnClass(MeterBinder.class)
+class SshdTransportMetrics implements MeterBinder {
+
+    private final SshdTransportStats transportStats;
+
+    @Autowired
+    SshdTransportMetrics(SshdTransportStats transportStats) {
+        this.transportStats = transportStats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sshd.shell.transport.sessions.open", transportStats, SshdTransportStats::getOpenSessions)
+                .description("SSH sessions currently connected").register(registry);
+        FunctionCounter.builder("sshd.shell.transport.sessions.created", transportStats,
+                SshdTransportStats::getCreatedSessions)
+                .description("SSH sessions connected").register(registry);
+        FunctionCounter.builder("sshd.shell.transport.sessions.authenticated", transportStats,
+                SshdTransportStats::getAuthenticatedSessions)
+                .description("SSH sessions authenticated").register(registry);
+        bindTiming(registry, "sshd.shell.transport.handshake", transportStats.getHandshakes(),
+                "Time from connection to the first exchange of keys");
+        bindTiming(registry, "sshd.shell.transport.kex", transportStats.getKeyExchanges(),
+                "Time to exchange keys, including re-keying");
+        transportStats.getAuthentications().forEach((type, authentication) -> {
+            FunctionTimer.builder("sshd.shell.transport.auth", authentication, SshdTransportStats.Timing::getCount,
+                    timing -> timing.getTotalTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS).tag("type", type)
+                    .description("Time to verify credentials").register(registry);
+            FunctionCounter.builder("sshd.shell.transport.auth.failures", authentication,
+                    SshdTransportStats.Authentication::getFailures).tag("type", type)
+                    .description("Credentials rejected").register(registry);
+        });
+        transportStats.getChannels().forEach((type, traffic) -> {
+            FunctionCounter.builder("sshd.shell.transport.channels", traffic, SshdTransportStats.Traffic::getChannels)
+                    .tag("type", type).description("Channels opened").register(registry);
+            FunctionCounter.builder("sshd.shell.transport.bytes.read", traffic,
+                    SshdTransportStats.Traffic::getBytesRead).tag("type", type).baseUnit("bytes")
+                    .description("Bytes received from clients over channels").register(registry);
+            FunctionCounter.builder("sshd.shell.transport.bytes.written", traffic,
+                    SshdTransportStats.Traffic::getBytesWritten).tag("type", type).baseUnit("bytes")
+                    .description("Bytes sent to clients over channels").register(registry);
+        });
+        FunctionCounter.builder("sshd.shell.transport.failures", transportStats,
+                SshdTransportStats::getNegotiationFailures).tag("reason", "negotiation")
+                .description("SSH sessions that failed").register(registry);
+        FunctionCounter.builder("sshd.shell.transport.failures", transportStats,
+                SshdTransportStats::getSessionErrors).tag("reason", "error")
+                .description("SSH sessions that failed").register(registry);
+    }
+
+    private static void bindTiming(MeterRegistry registry, String name, SshdTransportStats.Timing timing,
+            String description) {
+        FunctionTimer.builder(name, timing, SshdTransportStats.Timing::getCount,
+                t -> t.getTotalTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                .description(description).register(registry);
+    }
+}
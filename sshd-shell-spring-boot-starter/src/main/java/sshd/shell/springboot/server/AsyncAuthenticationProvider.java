@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import sshd.shell.springboot.autoconfiguration.SshdShellProperties;
+
+/**
+ * Authentication provider running the delegate provider on a dedicated bounded executor. Apache SSHD 1.6 calls
+ * password authenticators on its I/O threads and has no asynchronous authentication API, so the I/O thread still
+ * waits for the result, but only up to the timeout, and authentications beyond the concurrency cap fail immediately
+ * instead of tying up further I/O threads behind a slow provider.
+ *
+ * @author anand
+ */
+class AsyncAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider authProvider;
+    private final ThreadPoolExecutor executor;
+    private final long timeout;
+
+    AsyncAuthenticationProvider(AuthenticationProvider authProvider, SshdShellProperties.Shell.Auth.Async properties) {
+        this.authProvider = authProvider;
+        this.timeout = properties.getTimeout().toMillis();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sshd-auth-");
+        threadFactory.setDaemon(true);
+        executor = new ThreadPoolExecutor(properties.getMaxConcurrent(), properties.getMaxConcurrent(), 60,
+                TimeUnit.SECONDS, createQueue(properties.getQueueCapacity()), threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Declared as returning the interface so that callers do not need spring-security classes to be verified, keeping
+     * spring-security optional for applications not using DAO authentication.
+     */
+    static AuthenticationProvider wrap(AuthenticationProvider authProvider,
+            SshdShellProperties.Shell.Auth.Async properties) {
+        return new AsyncAuthenticationProvider(authProvider, properties);
+    }
+
+    private static BlockingQueue<Runnable> createQueue(int queueCapacity) {
+        return queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>();
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        Future<Authentication> result;
+        try {
+            result = executor.submit(() -> authProvider.authenticate(authentication));
+        } catch (RejectedExecutionException ex) {
+            throw new AuthenticationServiceException("Too many concurrent authentications, rejecting "
+                    + authentication.getName());
+        }
+        try {
+            return result.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            result.cancel(true);
+            throw new AuthenticationServiceException("Authentication of " + authentication.getName()
+                    + " timed out after " + timeout + " ms");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof AuthenticationException) {
+                throw (AuthenticationException) ex.getCause();
+            }
+            throw new AuthenticationServiceException("Authentication of " + authentication.getName() + " failed",
+                    ex.getCause());
+        } catch (InterruptedException ex) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("Authentication of " + authentication.getName()
+                    + " interrupted", ex);
+        }
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return authProvider.supports(authentication);
+    }
+}
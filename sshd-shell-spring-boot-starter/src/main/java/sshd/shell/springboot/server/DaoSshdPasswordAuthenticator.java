@@ -15,6 +15,8 @@
  */
 package sshd.shell.springboot.server;
 
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.sshd.server.auth.password.PasswordAuthenticator;
 import org.apache.sshd.server.auth.password.PasswordChangeRequiredException;
@@ -33,23 +35,34 @@ import sshd.shell.springboot.autoconfiguration.Constants;
 class DaoSshdPasswordAuthenticator implements PasswordAuthenticator {
 
     private final AuthenticationProvider authProvider;
+    private final SshdAuthenticationCache authCache;
     
-    DaoSshdPasswordAuthenticator(AuthenticationProvider authProvider) {
+    DaoSshdPasswordAuthenticator(AuthenticationProvider authProvider, SshdAuthenticationCache authCache) {
         this.authProvider = authProvider;
+        this.authCache = authCache;
     }
     
     @Override
     public boolean authenticate(String username, String password, ServerSession session) throws
             PasswordChangeRequiredException {
-        try {
-            Authentication auth = authProvider.authenticate(
-                    new UsernamePasswordAuthenticationToken(username, password));
-            session.getIoSession().setAttribute(Constants.USER_ROLES, auth.getAuthorities().stream()
-                    .map(ga -> ga.getAuthority()).collect(Collectors.toSet()));
-            return true;
-        } catch(AuthenticationException ex) {
-            log.warn(ex.getMessage());
-            return false;
+        Set<String> roles = Objects.isNull(authCache) ? null : authCache.get(username, password);
+        if (Objects.isNull(roles)) {
+            try {
+                Authentication auth = authProvider.authenticate(
+                        new UsernamePasswordAuthenticationToken(username, password));
+                roles = auth.getAuthorities().stream().map(ga -> ga.getAuthority()).collect(Collectors.toSet());
+            } catch(AuthenticationException ex) {
+                log.warn(ex.getMessage());
+                if (Objects.nonNull(authCache)) {
+                    authCache.invalidate(username);
+                }
+                return false;
+            }
+            if (Objects.nonNull(authCache)) {
+                authCache.put(username, password, roles);
+            }
         }
+        session.getIoSession().setAttribute(Constants.USER_ROLES, roles);
+        return true;
     }
 }
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.server;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.sshd.common.AttributeStore.AttributeKey;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.server.auth.password.PasswordAuthenticator;
+import org.apache.sshd.server.auth.pubkey.PublickeyAuthenticator;
+import org.apache.sshd.server.auth.pubkey.UserAuthPublicKey;
+import org.apache.sshd.server.auth.pubkey.UserAuthPublicKeyFactory;
+import org.apache.sshd.server.session.ServerSession;
+import sshd.shell.springboot.autoconfiguration.SshdShellProperties;
+
+/**
+ * Limits login attempts per remote address and per username before any credential check is made. Each key has a token
+ * bucket implemented lock free with the generic cell rate algorithm, i.e. a single theoretical arrival time updated by
+ * compare and set. Successful logins return their token so only failed attempts are limited. Buckets that have refilled
+ * carry no state and are evicted once maxKeys are tracked, at most one sweep per emission interval. If the table is
+ * still full, the bucket closest to refilling is evicted to admit a new key, so flooding the table with new addresses
+ * or usernames neither locks out other users nor resets the limit of a key under attack, which has been drained
+ * further than the flood's own buckets. Public keys are only charged for signed attempts, clients probing the keys
+ * they hold before falling back to passwords are not limited.
+ *
+ * @author anand
+ */
+@lombok.extern.slf4j.Slf4j
+public class LoginRateLimiter {
+
+    private static final AttributeKey<Boolean> SIGNED = new AttributeKey<>();
+    private final long addressEmissionInterval;
+    private final long addressBurstTolerance;
+    private final long userEmissionInterval;
+    private final long userBurstTolerance;
+    private final int maxKeys;
+    private final ConcurrentMap<String, AtomicLong> addressBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> userBuckets = new ConcurrentHashMap<>();
+    private final AtomicLong addressSweep = new AtomicLong(System.nanoTime());
+    private final AtomicLong userSweep = new AtomicLong(System.nanoTime());
+    private final AtomicLong rejectedByAddress = new AtomicLong();
+    private final AtomicLong rejectedByUser = new AtomicLong();
+
+    LoginRateLimiter(SshdShellProperties.Shell.Auth.RateLimit properties) {
+        long period = properties.getPeriod().toNanos();
+        addressEmissionInterval = period / properties.getAddressAttempts();
+        addressBurstTolerance = addressEmissionInterval * (properties.getAddressAttempts() - 1);
+        userEmissionInterval = period / properties.getUserAttempts();
+        userBurstTolerance = userEmissionInterval * (properties.getUserAttempts() - 1);
+        maxKeys = properties.getMaxKeys();
+    }
+
+    PasswordAuthenticator decoratePassword(PasswordAuthenticator authenticator) {
+        return (username, password, session) -> {
+            String address = remoteAddress(session);
+            if (!tryAcquire(address, username)) {
+                return false;
+            }
+            boolean authenticated = authenticator.authenticate(username, password, session);
+            if (authenticated) {
+                release(address, username);
+            }
+            return authenticated;
+        };
+    }
+
+    /**
+     * Limits signed public key attempts, which requires the public key authentication of {@link #userAuthFactory()}
+     * to tell them apart from key probes.
+     */
+    PublickeyAuthenticator decoratePublicKey(PublickeyAuthenticator authenticator) {
+        return (username, key, session) -> {
+            if (!Boolean.TRUE.equals(session.getAttribute(SIGNED))) {
+                return authenticator.authenticate(username, key, session);
+            }
+            String address = remoteAddress(session);
+            if (!tryAcquire(address, username)) {
+                return false;
+            }
+            boolean authenticated = authenticator.authenticate(username, key, session);
+            if (authenticated) {
+                release(address, username);
+            }
+            return authenticated;
+        };
+    }
+
+    /**
+     * Public key authentication marking the session while a signed attempt is being authenticated.
+     */
+    UserAuthPublicKeyFactory userAuthFactory() {
+        return new UserAuthPublicKeyFactory() {
+            @Override
+            public UserAuthPublicKey create() {
+                return new UserAuthPublicKey(getSignatureFactories()) {
+                    @Override
+                    public Boolean doAuth(Buffer buffer, boolean init) throws Exception {
+                        boolean signed = buffer.array()[buffer.rpos()] != 0; // Peek at the has-signature flag
+                        getServerSession().setAttribute(SIGNED, signed);
+                        try {
+                            return super.doAuth(buffer, init);
+                        } finally {
+                            getServerSession().removeAttribute(SIGNED);
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    private static String remoteAddress(ServerSession session) {
+        SocketAddress address = session.getIoSession().getRemoteAddress();
+        return address instanceof InetSocketAddress ? ((InetSocketAddress) address).getAddress().getHostAddress()
+                : String.valueOf(address);
+    }
+
+    boolean tryAcquire(String address, String username) {
+        if (!tryAcquire(addressBuckets, addressSweep, address, addressEmissionInterval, addressBurstTolerance)) {
+            rejectedByAddress.incrementAndGet();
+            log.debug("Rejecting login attempt from {}, too many attempts", address);
+            return false;
+        }
+        if (!tryAcquire(userBuckets, userSweep, username, userEmissionInterval, userBurstTolerance)) {
+            rejectedByUser.incrementAndGet();
+            log.debug("Rejecting login attempt for {}, too many attempts", username);
+            return false;
+        }
+        return true;
+    }
+
+    void release(String address, String username) {
+        release(addressBuckets, address, addressEmissionInterval);
+        release(userBuckets, username, userEmissionInterval);
+    }
+
+    private boolean tryAcquire(ConcurrentMap<String, AtomicLong> buckets, AtomicLong sweep, String key, long interval,
+            long tolerance) {
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(key);
+        if (Objects.isNull(bucket)) {
+            makeRoom(buckets, sweep, now, interval);
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long arrival = bucket.get();
+            if (arrival - tolerance - now > 0) {
+                return false;
+            }
+            if (bucket.compareAndSet(arrival, Math.max(arrival - now, 0) + now + interval)) {
+                return true;
+            }
+        }
+    }
+
+    private static void release(ConcurrentMap<String, AtomicLong> buckets, String key, long interval) {
+        AtomicLong bucket = buckets.get(key);
+        if (Objects.nonNull(bucket)) {
+            bucket.addAndGet(-interval);
+        }
+    }
+
+    /**
+     * Evicts refilled buckets if the table is full. The sweep is linear in maxKeys, so it runs at most once per
+     * emission interval, which is also the earliest a live bucket can refill after the previous sweep. If no bucket
+     * has refilled, the one with the earliest theoretical arrival time is evicted.
+     */
+    private void makeRoom(ConcurrentMap<String, AtomicLong> buckets, AtomicLong sweep, long now, long interval) {
+        if (buckets.size() < maxKeys) {
+            return;
+        }
+        long lastSweep = sweep.get();
+        if (now - lastSweep >= interval && sweep.compareAndSet(lastSweep, now)) {
+            buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        }
+        while (buckets.size() >= maxKeys) {
+            String oldest = null;
+            long oldestArrival = 0;
+            for (Map.Entry<String, AtomicLong> entry : buckets.entrySet()) {
+                long arrival = entry.getValue().get();
+                if (Objects.isNull(oldest) || arrival - oldestArrival < 0) {
+                    oldest = entry.getKey();
+                    oldestArrival = arrival;
+                }
+            }
+            if (Objects.isNull(oldest)) {
+                return;
+            }
+            buckets.remove(oldest);
+            log.debug("Evicted login rate limit of {}, {} keys are being limited", oldest, maxKeys);
+        }
+    }
+
+    /**
+     * Number of keys tracked.
+     * @return addresses and usernames with a bucket
+     */
+    public int size() {
+        return addressBuckets.size() + userBuckets.size();
+    }
+
+    public long getRejectedByAddress() {
+        return rejectedByAddress.get();
+    }
+
+    public long getRejectedByUser() {
+        return rejectedByUser.get();
+    }
+}
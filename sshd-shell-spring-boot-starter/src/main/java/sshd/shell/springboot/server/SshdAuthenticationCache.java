@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.server;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of successful DAO authentications, evicting the least recently used entry when full and entries
+ * older than the time to live on lookup. Only a salted SHA-256 hash of the password and the resolved roles are kept.
+ *
+ * @author anand
+ */
+public class SshdAuthenticationCache {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int SALT_LENGTH = 16;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Entry> entries;
+    private final long ttl;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    SshdAuthenticationCache(int maxSize, long ttl, TimeUnit unit) {
+        this.ttl = unit.toNanos(ttl);
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Roles of a user whose password matches a cached, unexpired authentication.
+     * @param username username
+     * @param password password
+     * @return roles or null on cache miss
+     */
+    Set<String> get(String username, String password) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(username);
+            if (Objects.nonNull(entry) && System.nanoTime() - entry.expiresAt >= 0) {
+                entries.remove(username);
+                entry = null;
+            }
+        }
+        if (Objects.nonNull(entry) && MessageDigest.isEqual(entry.hash, hash(entry.salt, password))) {
+            hits.incrementAndGet();
+            return entry.roles;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    void put(String username, String password, Set<String> roles) {
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        Entry entry = new Entry(salt, hash(salt, password), Collections.unmodifiableSet(roles),
+                System.nanoTime() + ttl);
+        synchronized (entries) {
+            entries.put(username, entry);
+        }
+    }
+
+    private static byte[] hash(byte[] salt, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            digest.update(salt);
+            return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Removes the cached authentication of a user, e.g. after a password or role change.
+     * @param username username
+     */
+    public void invalidate(String username) {
+        synchronized (entries) {
+            entries.remove(username);
+        }
+    }
+
+    /**
+     * Removes all cached authentications.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @lombok.AllArgsConstructor
+    private static class Entry {
+
+        private final byte[] salt;
+        private final byte[] hash;
+        private final Set<String> roles;
+        private final long expiresAt;
+    }
+}
@@ -15,26 +15,220 @@
  */
 package sshd.shell.springboot.server;
 
-import java.io.File;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.GeneralSecurityException;
 import java.security.PublicKey;
+import java.util.Arrays;
 import java.util.Collections;
-import org.apache.sshd.server.config.keys.AuthorizedKeysAuthenticator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.apache.sshd.common.config.keys.AuthorizedKeyEntry;
+import org.apache.sshd.common.config.keys.KeyUtils;
+import org.apache.sshd.common.config.keys.PublicKeyEntryResolver;
+import org.apache.sshd.server.auth.pubkey.PublickeyAuthenticator;
 import org.apache.sshd.server.session.ServerSession;
 import sshd.shell.springboot.autoconfiguration.Constants;
 
 /**
+ * Authorizes public keys listed in an authorized_keys file. Keys are indexed by fingerprint so that a login costs a
+ * single digest and map lookup regardless of the number of keys. Roles may be assigned per key with a
+ * {@code roles="ADMIN,USER"} option, keys without one are granted all roles. The file is watched for changes and
+ * reloaded in the background, unless its directory does not exist at startup; lines that did not change are not
+ * decoded again and the new index replaces the old one in a single write, so logins in progress are never blocked by a
+ * reload.
  *
  * @author anand
  */
-class SshdAuthorizedKeysAuthenticator extends AuthorizedKeysAuthenticator {
-    
-    public SshdAuthorizedKeysAuthenticator(File file) {
-        super(file);
+@lombok.extern.slf4j.Slf4j
+class SshdAuthorizedKeysAuthenticator implements PublickeyAuthenticator, Closeable {
+
+    static final String ROLES_OPTION = "roles";
+    private static final Set<String> ALL_ROLES = Collections.singleton("*");
+    private static final String WATCHER_THREAD_NAME = "sshd-authorized-keys-watcher";
+
+    private final Path file;
+    private final WatchService watchService;
+    private volatile Index index = new Index(Collections.emptyMap(), Collections.emptyMap());
+
+    SshdAuthorizedKeysAuthenticator(Path file) throws IOException {
+        this.file = file.toAbsolutePath();
+        reload();
+        Path directory = this.file.getParent();
+        if (!Files.isDirectory(directory)) {
+            log.warn("Directory {} does not exist, changes to {} will not be picked up", directory, this.file);
+            watchService = null;
+            return;
+        }
+        watchService = this.file.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        Thread watcher = new Thread(this::watch, WATCHER_THREAD_NAME);
+        watcher.setDaemon(true);
+        watcher.start();
     }
 
     @Override
     public boolean authenticate(String username, PublicKey key, ServerSession session) {
-        session.getIoSession().setAttribute(Constants.USER_ROLES, Collections.<String>singleton("*"));
-        return super.authenticate(username, key, session);
+        Set<String> roles = getRoles(key);
+        if (Objects.isNull(roles)) {
+            return false;
+        }
+        session.getIoSession().setAttribute(Constants.USER_ROLES, roles);
+        return true;
+    }
+
+    /**
+     * Roles of an authorized key.
+     * @param key public key
+     * @return roles or null if the key is not authorized
+     */
+    Set<String> getRoles(PublicKey key) {
+        Entry entry = index.byFingerprint.get(KeyUtils.getFingerPrint(key));
+        return Objects.nonNull(entry) && KeyUtils.compareKeys(entry.key, key) ? entry.roles : null;
+    }
+
+    int size() {
+        return index.byFingerprint.size();
+    }
+
+    private void watch() {
+        try {
+            for (;;) {
+                WatchKey watchKey = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || file.getFileName().equals(event.context());
+                }
+                if (changed) {
+                    reload();
+                }
+                watchKey.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            log.debug("Stopped watching {}", file);
+        }
+    }
+
+    void reload() {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException ex) {
+            lines = Collections.emptyList();
+        } catch (IOException ex) {
+            log.warn("Failed to read {}, keeping previously authorized keys", file, ex);
+            return;
+        }
+        Index previous = index;
+        Map<String, Entry> byLine = new HashMap<>();
+        Map<String, Entry> byFingerprint = new HashMap<>();
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == AuthorizedKeyEntry.COMMENT_CHAR) {
+                continue;
+            }
+            Entry entry = previous.byLine.get(line);
+            if (Objects.isNull(entry)) {
+                entry = parse(line);
+            }
+            if (Objects.nonNull(entry)) {
+                byLine.put(line, entry);
+                byFingerprint.put(entry.fingerprint, entry);
+            }
+        }
+        index = new Index(byLine, byFingerprint);
+        log.info("Loaded {} authorized keys from {}", byFingerprint.size(), file);
+    }
+
+    private Entry parse(String line) {
+        try {
+            String options = "";
+            int keyStart = 0;
+            if (Objects.isNull(KeyUtils.getPublicKeyEntryDecoder(line.split("\\s+", 2)[0]))) {
+                keyStart = endOfOptions(line);
+                options = line.substring(0, keyStart);
+            }
+            AuthorizedKeyEntry keyEntry = AuthorizedKeyEntry.parseAuthorizedKeyEntry(line.substring(keyStart).trim());
+            PublicKey key = keyEntry.resolvePublicKey(PublicKeyEntryResolver.FAILING);
+            return new Entry(KeyUtils.getFingerPrint(key), key, parseRoles(options));
+        } catch (IOException | GeneralSecurityException | RuntimeException ex) {
+            log.warn("Ignoring invalid authorized key entry in {}: {}", file, ex.getMessage());
+            return null;
+        }
+    }
+
+    private static int endOfOptions(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && Character.isWhitespace(c)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No key after options");
+    }
+
+    /**
+     * Extracts the roles option from comma separated login options, e.g. {@code no-pty,roles="ADMIN,USER"}.
+     */
+    static Set<String> parseRoles(String options) {
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i <= options.length(); i++) {
+            if (i < options.length() && options.charAt(i) == '"') {
+                quoted = !quoted;
+            } else if (i == options.length() || (!quoted && options.charAt(i) == ',')) {
+                String option = options.substring(start, i).trim();
+                int separator = option.indexOf('=');
+                if (separator > 0 && ROLES_OPTION.equalsIgnoreCase(option.substring(0, separator).trim())) {
+                    String value = option.substring(separator + 1).trim().replace("\"", "");
+                    Set<String> roles = new LinkedHashSet<>();
+                    Arrays.stream(value.split(",")).map(String::trim).filter(role -> !role.isEmpty())
+                            .forEach(roles::add);
+                    return Collections.unmodifiableSet(roles);
+                }
+                start = i + 1;
+            }
+        }
+        return ALL_ROLES;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (Objects.nonNull(watchService)) {
+            watchService.close();
+        }
+    }
+
+    @lombok.AllArgsConstructor
+    private static class Index {
+
+        private final Map<String, Entry> byLine;
+        private final Map<String, Entry> byFingerprint;
+    }
+
+    @lombok.AllArgsConstructor
+    private static class Entry {
+
+        private final String fingerprint;
+        private final PublicKey key;
+        private final Set<String> roles;
     }
 }
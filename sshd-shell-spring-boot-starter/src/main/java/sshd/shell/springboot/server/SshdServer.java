@@ -17,14 +17,26 @@ package sshd.shell.springboot.server;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import org.apache.sshd.common.Factory;
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.PropertyResolverUtils;
+import org.apache.sshd.common.io.IoServiceFactoryFactory;
 import org.apache.sshd.server.Command;
+import org.apache.sshd.server.CommandFactory;
+import org.apache.sshd.server.ServerAuthenticationManager;
 import org.apache.sshd.server.SshServer;
 import org.apache.sshd.server.auth.password.PasswordAuthenticator;
+import org.apache.sshd.server.auth.pubkey.PublickeyAuthenticator;
 import org.apache.sshd.server.auth.pubkey.RejectAllPublickeyAuthenticator;
+import org.apache.sshd.server.auth.pubkey.UserAuthPublicKeyFactory;
 import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,7 +45,9 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.util.ClassUtils;
 import sshd.shell.springboot.autoconfiguration.SshdShellProperties;
+import sshd.shell.springboot.autoconfiguration.SshdTransportStats;
 import static sshd.shell.springboot.autoconfiguration.SshdShellProperties.AuthType.*;
 
 /**
@@ -45,12 +59,21 @@ import static sshd.shell.springboot.autoconfiguration.SshdShellProperties.AuthTy
 @lombok.extern.slf4j.Slf4j
 class SshdServer {
 
+    private static final String NIO2_FACTORY = "org.apache.sshd.common.io.nio2.Nio2ServiceFactoryFactory";
+    private static final String MINA_FACTORY = "org.apache.sshd.common.io.mina.MinaServiceFactoryFactory";
+
     @Autowired
     private SshdShellProperties properties;
     @Autowired
     private Factory<Command> sshSessionFactory;
     @Autowired
+    private CommandFactory sshCommandFactory;
+    @Autowired
     private ApplicationContext appContext;
+    @Autowired
+    private SshdTransportStats transportStats;
+    private SshdAuthorizedKeysAuthenticator authorizedKeysAuthenticator;
+    private SshServer server;
 
     @Bean
     PasswordAuthenticator passwordAuthenticator() {
@@ -63,7 +86,11 @@ class SshdServer {
                     AuthenticationProvider authProvider = Objects.isNull(props.getAuthProviderBeanName())
                             ? appContext.getBean(AuthenticationProvider.class)
                             : appContext.getBean(props.getAuthProviderBeanName(), AuthenticationProvider.class);
-                    return new DaoSshdPasswordAuthenticator(authProvider);
+                    if (props.getAsync().isEnabled()) {
+                        authProvider = AsyncAuthenticationProvider.wrap(authProvider, props.getAsync());
+                    }
+                    return new DaoSshdPasswordAuthenticator(authProvider, props.getCache().isEnabled()
+                            ? sshdAuthenticationCache() : null);
                 } catch (BeansException ex) {
                     throw new IllegalArgumentException("Expected a default or valid AuthenticationProvider bean", ex);
                 }
@@ -72,6 +99,19 @@ class SshdServer {
         }
     }
 
+    @Bean
+    @ConditionalOnProperty(name = "sshd.shell.auth.cache.enabled", havingValue = "true")
+    SshdAuthenticationCache sshdAuthenticationCache() {
+        SshdShellProperties.Shell.Auth.Cache props = properties.getShell().getAuth().getCache();
+        return new SshdAuthenticationCache(props.getMaxSize(), props.getTtl().toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "sshd.shell.auth.rateLimit.enabled", havingValue = "true")
+    LoginRateLimiter loginRateLimiter() {
+        return new LoginRateLimiter(properties.getShell().getAuth().getRateLimit());
+    }
+
     @PostConstruct
     void startServer() throws IOException {
         SshdShellProperties.Shell props = properties.getShell();
@@ -80,17 +120,107 @@ class SshdServer {
             log.info("********** User password not set. Use following password to login: {} **********",
                     props.getPassword());
         }
-        SshServer server = SshServer.setUpDefaultServer();
+        server = SshServer.setUpDefaultServer();
+        configureTransport(server, props.getTransport());
         server.setKeyPairProvider(new SimpleGeneratorHostKeyProvider(new File(props.getHostKeyFile())));
-        server.setPublickeyAuthenticator(Objects.isNull(props.getPublicKeyFile())
-                ? RejectAllPublickeyAuthenticator.INSTANCE
-                : new SshdAuthorizedKeysAuthenticator(new File(props.getPublicKeyFile())));
+        PublickeyAuthenticator publickeyAuthenticator = RejectAllPublickeyAuthenticator.INSTANCE;
+        if (Objects.nonNull(props.getPublicKeyFile())) {
+            authorizedKeysAuthenticator = new SshdAuthorizedKeysAuthenticator(Paths.get(props.getPublicKeyFile()));
+            publickeyAuthenticator = authorizedKeysAuthenticator;
+        }
+        publickeyAuthenticator = transportStats.decorate(publickeyAuthenticator);
+        PasswordAuthenticator passwordAuthenticator = transportStats.decorate(passwordAuthenticator(),
+                props.getAuth().getAuthType());
+        boolean rateLimitPublicKeys = props.getAuth().getRateLimit().isEnabled()
+                && Objects.nonNull(authorizedKeysAuthenticator);
+        if (props.getAuth().getRateLimit().isEnabled()) {
+            passwordAuthenticator = loginRateLimiter().decoratePassword(passwordAuthenticator);
+        }
+        if (rateLimitPublicKeys) {
+            publickeyAuthenticator = loginRateLimiter().decoratePublicKey(publickeyAuthenticator);
+        }
+        server.setPublickeyAuthenticator(publickeyAuthenticator);
         server.setHost(props.getHost());
-        server.setPasswordAuthenticator(passwordAuthenticator());
+        server.setPasswordAuthenticator(passwordAuthenticator);
         server.setPort(props.getPort());
         server.setShellFactory(sshSessionFactory);
+        server.setCommandFactory(sshCommandFactory);
+        if (rateLimitPublicKeys) {
+            server.setUserAuthFactories(ServerAuthenticationManager.resolveUserAuthFactories(server).stream()
+                    .map(factory -> UserAuthPublicKeyFactory.NAME.equals(factory.getName())
+                    ? loginRateLimiter().userAuthFactory() : factory).collect(Collectors.toList()));
+        }
+        server.addSessionListener(transportStats);
         server.start();
         props.setPort(server.getPort()); // In case server port is 0, a random port is assigned.
         log.info("SSH server started on port {}", props.getPort());
     }
+
+    /**
+     * Sets the transport only if a type is configured, leaving SSHD's own selection, e.g. through its
+     * org.apache.sshd.common.io.IoServiceFactoryFactory system property or service loader, in place otherwise.
+     */
+    static void configureTransport(SshServer server, SshdShellProperties.Shell.Transport transport) {
+        if (Objects.nonNull(transport.getType())) {
+            server.setIoServiceFactoryFactory(createIoServiceFactoryFactory(transport.getType()));
+        }
+        if (transport.getIoThreads() > 0) {
+            PropertyResolverUtils.updateProperty(server, FactoryManager.NIO_WORKERS, transport.getIoThreads());
+        }
+        setIfConfigured(server, FactoryManager.TCP_NODELAY, transport.getTcpNoDelay());
+        setIfConfigured(server, FactoryManager.SOCKET_KEEPALIVE, transport.getKeepAlive());
+        setIfConfigured(server, FactoryManager.SOCKET_RCVBUF, transport.getReceiveBufferSize());
+        setIfConfigured(server, FactoryManager.SOCKET_SNDBUF, transport.getSendBufferSize());
+        setIfConfigured(server, FactoryManager.SOCKET_BACKLOG, transport.getBacklog());
+        log.info("SSH transport {} with {} I/O threads", Objects.isNull(transport.getType()) ? "default"
+                : server.getIoServiceFactoryFactory().getClass().getSimpleName(),
+                PropertyResolverUtils.getIntProperty(server, FactoryManager.NIO_WORKERS,
+                        FactoryManager.DEFAULT_NIO_WORKERS));
+    }
+
+    private static void setIfConfigured(SshServer server, String name, Object value) {
+        if (Objects.nonNull(value)) {
+            PropertyResolverUtils.updateProperty(server, name, value);
+        }
+    }
+
+    /**
+     * Resolves NIO2, MINA (requires mina-core) or the class name of any other IoServiceFactoryFactory.
+     */
+    static IoServiceFactoryFactory createIoServiceFactoryFactory(String type) {
+        String className;
+        switch (type.toUpperCase(Locale.ROOT)) {
+            case "NIO2":
+                className = NIO2_FACTORY;
+                break;
+            case "MINA":
+                className = MINA_FACTORY;
+                break;
+            default:
+                className = type;
+        }
+        try {
+            ClassLoader classLoader = SshdServer.class.getClassLoader();
+            if (MINA_FACTORY.equals(className) && !ClassUtils.isPresent("org.apache.mina.core.service.IoAcceptor",
+                    classLoader)) {
+                throw new IllegalArgumentException("MINA transport requires org.apache.mina:mina-core in classpath");
+            }
+            return (IoServiceFactoryFactory) ClassUtils.forName(className, classLoader).newInstance();
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException ex) {
+            throw new IllegalArgumentException("Invalid/Unsupported transport type " + type, ex);
+        }
+    }
+
+    /**
+     * Stops the server, whose transport may hold non-daemon threads (e.g. MINA's acceptor) that keep the JVM alive.
+     */
+    @PreDestroy
+    void stopServer() throws IOException {
+        if (Objects.nonNull(authorizedKeysAuthenticator)) {
+            authorizedKeysAuthenticator.close();
+        }
+        if (Objects.nonNull(server)) {
+            server.stop(true);
+        }
+    }
 }
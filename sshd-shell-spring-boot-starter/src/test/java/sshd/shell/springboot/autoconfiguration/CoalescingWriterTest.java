@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author anand
+ */
+public class CoalescingWriterTest {
+
+    @Test
+    public void testStalledClientDoesNotBlockOtherFlushes() throws Exception {
+        SshSessionExecutor executor = new SshSessionExecutor(new SshdShellProperties.Shell.Session.Executor(),
+                new SshdShellProperties.Shell.Jobs());
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Writer stalledClient = new StringWriter() {
+            @Override
+            public void flush() {
+                stalled.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        StringWriter client = new StringWriter();
+        CountDownLatch swept = new CountDownLatch(2);
+        try {
+            CoalescingWriter stalledWriter = newWriter(stalledClient, executor);
+            stalledWriter.write("stalled");
+            stalledWriter.flush();
+            assertTrue(stalled.await(5, SECONDS));
+            executor.scheduleAtFixedRate(swept::countDown, 0, 10, TimeUnit.MILLISECONDS);
+            CoalescingWriter writer = newWriter(client, executor);
+            writer.write("hello");
+            writer.flush();
+            await().atMost(5, SECONDS).until(() -> client.toString().equals("hello"));
+            assertTrue(swept.await(5, SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private static CoalescingWriter newWriter(Writer out, SshSessionExecutor executor) {
+        return new CoalescingWriter(out, new SshdShellProperties.Shell.Output(), executor);
+    }
+}
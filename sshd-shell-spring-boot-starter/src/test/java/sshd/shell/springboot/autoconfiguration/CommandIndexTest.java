@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author anand
+ */
+public class CommandIndexTest {
+
+    private final CommandIndex commandIndex = new CommandIndex(commandMap());
+
+    @Test
+    public void testUserView() {
+        CommandIndex.View view = commandIndex.forRoles(Collections.singleton("USER"));
+        assertEquals("Supported Commands\n\rpublic\t\tpublic description\n\rtest\t\ttest description", view.getHelp());
+        assertEquals("Supported subcommand for test\n\rrun\t\ttest run", view.getSubcommands("test"));
+        assertTrue(view.isPermitted(commandIndex.getCommand("test").get("run")));
+        assertFalse(view.isPermitted(commandIndex.getCommand("test").get("execute")));
+    }
+
+    @Test
+    public void testWildcardView() {
+        CommandIndex.View view = commandIndex.forRoles(Collections.singleton("*"));
+        assertEquals("Supported subcommand for test\n\rexecute\t\ttest execute\n\rrun\t\ttest run",
+                view.getSubcommands("test"));
+        assertTrue(view.isPermitted(commandIndex.getCommand("test").get("execute")));
+    }
+
+    @Test
+    public void testUnknownRolesSeeOnlyPublicCommands() {
+        CommandIndex.View view = commandIndex.forRoles(Collections.singleton("GUEST"));
+        assertEquals("Supported Commands\n\rpublic\t\tpublic description", view.getHelp());
+        assertNull(view.getSubcommands("test"));
+        assertFalse(view.isPermitted(commandIndex.getCommand("test").get(Constants.EXECUTE)));
+    }
+
+    @Test
+    public void testViewsSharedAcrossEquivalentRoleSets() {
+        assertSame(commandIndex.forRoles(Collections.singleton("USER")),
+                commandIndex.forRoles(new HashSet<>(Arrays.asList("USER", "GUEST"))));
+        assertSame(commandIndex.forRoles(Collections.singleton("*")),
+                commandIndex.forRoles(new HashSet<>(Arrays.asList("USER", "ADMIN"))));
+    }
+
+    private static Map<String, Map<String, CommandExecutableDetails>> commandMap() {
+        Map<String, Map<String, CommandExecutableDetails>> commandMap = new TreeMap<>();
+        Map<String, CommandExecutableDetails> test = new TreeMap<>();
+        test.put(Constants.EXECUTE, details(TestCommand.class.getAnnotation(SshdShellCommand.class)));
+        for (String method : new String[]{"run", "execute"}) {
+            try {
+                test.put(method, details(TestCommand.class.getDeclaredMethod(method, String.class)
+                        .getAnnotation(SshdShellCommand.class)));
+            } catch (NoSuchMethodException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        commandMap.put("test", test);
+        Map<String, CommandExecutableDetails> publicCommand = new TreeMap<>();
+        publicCommand.put(Constants.EXECUTE, details(PublicCommand.class.getAnnotation(SshdShellCommand.class)));
+        commandMap.put("public", publicCommand);
+        return commandMap;
+    }
+
+    private static CommandExecutableDetails details(SshdShellCommand command) {
+        return new CommandExecutableDetails(command, null);
+    }
+
+    @SshdShellCommand(value = "public", description = "public description")
+    private static class PublicCommand {
+    }
+}
@@ -18,6 +18,10 @@
  */
 package sshd.shell.springboot.autoconfiguration;
 
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -34,4 +38,32 @@ class DummyCommand {
     String run(String arg) {
         return "dummy run successful";
     }
+    
+    @SshdShellCommand(value = "stream", description = "dummy stream")
+    Stream<String> stream(String arg) {
+        return IntStream.range(0, Objects.isNull(arg) ? 3 : Integer.parseInt(arg)).mapToObj(i -> "line " + i);
+    }
+
+    @SshdShellCommand(value = "broken", description = "dummy broken stream")
+    Stream<String> broken(String arg) {
+        return IntStream.range(0, 3).mapToObj(i -> {
+            if (i == 2) {
+                throw new IllegalStateException("Stream broken");
+            }
+            return "line " + i;
+        });
+    }
+
+    @SshdShellCommand(value = "async", description = "dummy async")
+    String async(String arg) {
+        CompletableFuture.runAsync(SshSessionContext.wrapRunnable(() -> SshSessionContext.writeOutput(
+                "progress of " + SshSessionContext.get(SshSessionContext.USER_ROLES)))).join();
+        return "dummy async done";
+    }
+
+    @SshdShellCommand(value = "sleep", description = "dummy sleep")
+    String sleep(String arg) throws InterruptedException {
+        Thread.sleep(Long.parseLong(arg));
+        return "dummy sleep done";
+    }
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ *
+ * @author anand
+ */
+public class MethodHandleCommandExecutorTest {
+
+    @Test
+    public void testCommandMethod() throws Exception {
+        MethodHandleCommandExecutor executor = new MethodHandleCommandExecutor(
+                Commands.class.getDeclaredMethod("echo", String.class), new Commands());
+        assertEquals("echo hi", executor.get("hi"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWronglyTypedCommandMethod() throws Exception {
+        new MethodHandleCommandExecutor(Commands.class.getDeclaredMethod("count", int.class), new Commands());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCommandMethodWithTooManyArguments() throws Exception {
+        new MethodHandleCommandExecutor(Commands.class.getDeclaredMethod("join", String.class, String.class),
+                new Commands());
+    }
+
+    private static class Commands {
+
+        String echo(String arg) {
+            return "echo " + arg;
+        }
+
+        String count(int arg) {
+            return String.valueOf(arg);
+        }
+
+        String join(String arg, String other) {
+            return arg + other;
+        }
+    }
+}
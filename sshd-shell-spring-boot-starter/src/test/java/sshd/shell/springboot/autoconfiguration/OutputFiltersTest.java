@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author anand
+ */
+public class OutputFiltersTest {
+
+    private static final List<String> LINES = Arrays.asList("banana 3", "Apple 10", "cherry 2", "apple pie 1");
+
+    @Test
+    public void testGrep() {
+        assertEquals(Arrays.asList("apple pie 1"), filter("grep apple"));
+        assertEquals(Arrays.asList("Apple 10", "apple pie 1"), filter("grep -i apple"));
+        assertEquals(Arrays.asList("banana 3", "cherry 2"), filter("grep -v -i ^apple"));
+        assertEquals(Arrays.asList("apple pie 1"), filter("grep pie 1"));
+    }
+
+    @Test
+    public void testHeadAndTail() {
+        assertEquals(LINES.subList(0, 2), filter("head 2"));
+        assertEquals(LINES.subList(0, 1), filter("head -n 1"));
+        assertEquals(LINES, filter("head"));
+        assertEquals(LINES.subList(2, 4), filter("tail 2"));
+        assertEquals(LINES.subList(3, 4), filter("tail -n 1"));
+        assertEquals(LINES, filter("tail 3000000000"));
+        assertEquals(LINES, filter("head -n 3000000000"));
+        assertEquals(Collections.emptyList(), filter("tail " + Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testWc() {
+        assertEquals(Arrays.asList("4 9 39"), filter("wc"));
+        assertEquals(Arrays.asList("4"), filter("wc -l"));
+        assertEquals(Arrays.asList("9"), filter("wc -w"));
+    }
+
+    @Test
+    public void testSort() {
+        assertEquals(Arrays.asList("Apple 10", "apple pie 1", "banana 3", "cherry 2"), filter("sort"));
+        assertEquals(Arrays.asList("cherry 2", "banana 3", "apple pie 1", "Apple 10"), filter("sort -r"));
+        assertEquals(Arrays.asList("2", "10"), OutputFilters.parse("sort -n").apply(Stream.of("10", "2"))
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testHeadStopsUpstream() {
+        AtomicInteger produced = new AtomicInteger();
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<String> command = Stream.iterate(0, i -> i + 1).peek(i -> produced.incrementAndGet())
+                .map(i -> "line " + i).onClose(() -> closed.set(true));
+        try (Stream<String> lines = OutputFilters.parse("head 3").apply(OutputFilters.parse("grep 1")
+                .apply(OutputFilters.lines(command)))) {
+            assertEquals(Arrays.asList("line 1", "line 10", "line 11"), lines.collect(Collectors.toList()));
+        }
+        assertEquals(12, produced.get());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    public void testStringOutputLines() {
+        assertEquals(Arrays.asList("a", "b"), OutputFilters.lines("a\r\nb").collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testShellOutputLines() {
+        assertEquals(Arrays.asList("a", "b", "c"), OutputFilters.lines("a\n\rb\n\rc\n\r")
+                .collect(Collectors.toList()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFilter() {
+        OutputFilters.parse("awk");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPattern() {
+        OutputFilters.parse("grep (");
+    }
+
+    private static List<String> filter(String filter) {
+        return OutputFilters.parse(filter).apply(LINES.stream()).collect(Collectors.toList());
+    }
+}
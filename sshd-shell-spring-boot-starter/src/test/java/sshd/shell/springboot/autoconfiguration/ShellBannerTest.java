@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.springframework.core.env.StandardEnvironment;
+
+/**
+ *
+ * @author anand
+ */
+public class ShellBannerTest {
+
+    @Test
+    public void testBannerRenderedOnce() {
+        StandardEnvironment environment = new StandardEnvironment();
+        ShellBanner shellBanner = new ShellBanner(environment);
+        shellBanner.init();
+        byte[] first = print(shellBanner, environment);
+        byte[] second = print(shellBanner, environment);
+        assertTrue(new String(first).contains("Spring Boot\n\r"));
+        assertArrayEquals(first, second);
+    }
+
+    private static byte[] print(ShellBanner shellBanner, StandardEnvironment environment) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        shellBanner.printBanner(environment, ShellBannerTest.class, new PrintStream(output));
+        return output.toByteArray();
+    }
+}
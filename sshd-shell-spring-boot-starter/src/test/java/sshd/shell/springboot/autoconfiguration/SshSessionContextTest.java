@@ -18,14 +18,27 @@ package sshd.shell.springboot.autoconfiguration;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import jline.console.ConsoleReader;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 import org.springframework.boot.ansi.AnsiColor;
+import org.springframework.boot.ansi.AnsiOutput;
 
 /**
  *
@@ -51,4 +64,98 @@ public class SshSessionContextTest {
         SshSessionContext.clear();
         assertTrue(SshSessionContext.isEmpty());
     }
+
+    @Test
+    public void testTypedKeys() {
+        SshSessionContext.Key<Integer> count = SshSessionContext.Key.of("count");
+        assertNull(SshSessionContext.get(count));
+        SshSessionContext.put(count, 1);
+        assertEquals(Integer.valueOf(1), SshSessionContext.get(count));
+        assertEquals(Integer.valueOf(1), SshSessionContext.get("count"));
+        assertTrue(SshSessionContext.containsKey("count"));
+        SshSessionContext.put(Constants.USER_ROLES, Collections.singleton("ADMIN"));
+        assertEquals(Collections.singleton("ADMIN"), SshSessionContext.get(SshSessionContext.USER_ROLES));
+        assertTrue(SshSessionContext.containsKey(SshSessionContext.USER_ROLES));
+        assertEquals(Integer.valueOf(1), SshSessionContext.remove(count));
+        assertFalse(SshSessionContext.containsKey(count));
+        SshSessionContext.clear();
+        assertNull(SshSessionContext.get(SshSessionContext.USER_ROLES));
+    }
+
+    @Test
+    public void testCopiedStateIsIndependent() {
+        SshSessionState state = new SshSessionState();
+        state.setAttribute("name", "alice");
+        SshSessionState copy = state.copy();
+        SshSessionContext.attach(copy);
+        SshSessionContext.put("name", "bob");
+        assertEquals("bob", SshSessionContext.get("name"));
+        assertEquals("alice", state.getAttribute("name"));
+        SshSessionContext.clear();
+    }
+
+    @Test
+    public void testContextPropagation() throws Exception {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        SshSessionContext.put(SshSessionContext.WRITER, new PrintWriter(os));
+        SshSessionContext.put(SshSessionContext.TEXT_COLOR, AnsiColor.DEFAULT);
+        SshSessionContext.put("name", "alice");
+        Runnable progress = SshSessionContext.wrapRunnable(() -> {
+            SshSessionContext.writeOutput("progress of " + SshSessionContext.get("name"));
+            SshSessionContext.put("name", "bob");
+        });
+        SshSessionContext.put("name", "carol");
+        CompletableFuture.runAsync(progress).get();
+        assertEquals("carol", CompletableFuture.supplyAsync(SshSessionContext.wrapSupplier(
+                () -> SshSessionContext.<String>get("name"))).get());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        assertEquals("carol", executor.submit(SshSessionContext.wrapCallable(
+                () -> SshSessionContext.<String>get("name"))).get());
+        executor.shutdown();
+        List<String> names = IntStream.range(0, 100).boxed().parallel()
+                .map(SshSessionContext.wrapFunction(i -> SshSessionContext.<String>get("name")))
+                .distinct().collect(Collectors.toList());
+        assertEquals(Collections.singletonList("carol"), names);
+        assertTrue(os.toString(StandardCharsets.UTF_8).contains("progress of alice"));
+        assertEquals("carol", SshSessionContext.get("name"));
+        SshSessionContext.clear();
+        Runnable task = () -> {
+        };
+        assertSame(task, SshSessionContext.wrapRunnable(task));
+    }
+
+    @Test
+    public void testOutputLockSurvivesWriterReplacement() throws Exception {
+        StringBuilder sink = new StringBuilder(); // Not thread safe, lines only stay intact under the session's lock
+        Writer out = new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) {
+                sink.append(cbuf, off, len);
+                Thread.yield(); // Let the other thread write in between if it is not excluded
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        SshSessionContext.put(SshSessionContext.WRITER, new PrintWriter(out));
+        SshSessionContext.put(SshSessionContext.TEXT_COLOR, AnsiColor.DEFAULT);
+        Runnable worker = SshSessionContext.wrapRunnable(() -> IntStream.range(0, 500)
+                .forEach(i -> SshSessionContext.writeOutput("worker " + i)));
+        SshSessionContext.put(SshSessionContext.WRITER, new PrintWriter(out)); // As done after Ctrl-C
+        CompletableFuture<Void> future = CompletableFuture.runAsync(worker);
+        IntStream.range(0, 500).forEach(i -> SshSessionContext.writeOutput("session " + i));
+        future.get();
+        SshSessionContext.clear();
+        String prefix = AnsiOutput.encode(AnsiColor.DEFAULT);
+        String[] lines = sink.toString().split(Pattern.quote(ConsoleReader.RESET_LINE + ""));
+        assertEquals(1000, lines.length);
+        for (String line : lines) {
+            assertTrue(line, line.matches(Pattern.quote(prefix) + "(worker|session) \\d+\\r?\\n"));
+        }
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import com.jcraft.jsch.ChannelShell;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import org.apache.commons.io.input.CharSequenceInputStream;
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ *
+ * @author anand
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = ConfigTest.class, properties = {"sshd.shell.output.buffered=true",
+    "sshd.shell.output.bufferSize=64", "sshd.shell.session.idleTimeout=2"})
+public class SshdShellAutoConfigurationBufferedOutputTest {
+
+    @Autowired
+    private SshdShellProperties properties;
+
+    @Test
+    public void testBufferedOutput() throws JSchException {
+        Session session = openSession();
+        ChannelShell channel = (ChannelShell) session.openChannel("shell");
+        channel.setInputStream(new CharSequenceInputStream("test\rdummy stream 1000\r", StandardCharsets.UTF_8));
+        OutputStream os = new ByteArrayOutputStream();
+        channel.setOutputStream(os);
+        channel.connect();
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("Enter 'help' for a list of supported commands"
+                + "\n\rapp> test\r\nSupported subcommand for test\n\rexecute\t\ttest execute\n\rrun\t\ttest run"
+                + "\n\rapp> dummy stream 1000\r\nline 0\n\r"));
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("line 998\n\rline 999\n\rapp> "));
+        channel.disconnect();
+        session.disconnect();
+    }
+
+    @Test
+    public void testEvictionMessageSent() throws JSchException {
+        Session session = openSession();
+        ChannelShell channel = (ChannelShell) session.openChannel("shell");
+        OutputStream os = new ByteArrayOutputStream();
+        channel.setOutputStream(os);
+        channel.connect();
+        await().atMost(5, SECONDS).until(channel::isClosed);
+        assertTrue(os.toString().contains(SshSessionRegistry.IDLE_TIMEOUT_MESSAGE));
+        session.disconnect();
+    }
+
+    private Session openSession() throws JSchException {
+        JSch jsch = new JSch();
+        Session session = jsch.getSession(properties.getShell().getUsername(), "localhost",
+                properties.getShell().getPort());
+        session.setPassword(properties.getShell().getPassword());
+        Properties config = new Properties();
+        config.put("StrictHostKeyChecking", "no");
+        session.setConfig(config);
+        session.connect();
+        return session;
+    }
+}
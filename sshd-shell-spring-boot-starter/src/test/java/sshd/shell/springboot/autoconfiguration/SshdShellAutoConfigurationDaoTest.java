@@ -15,6 +15,7 @@
  */
 package sshd.shell.springboot.autoconfiguration;
 
+import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.ChannelShell;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
@@ -26,6 +27,7 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import org.apache.commons.io.input.CharSequenceInputStream;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -107,6 +109,27 @@ public class SshdShellAutoConfigurationDaoTest {
         session.disconnect();
     }
     
+    @Test
+    public void testDaoExecWithoutRightPermission() throws JSchException {
+        JSch jsch = new JSch();
+        Session session = jsch.getSession(properties.getShell().getUsername(), "localhost",
+                properties.getShell().getPort());
+        session.setPassword(properties.getShell().getPassword());
+        Properties config = new Properties();
+        config.put("StrictHostKeyChecking", "no");
+        session.setConfig(config);
+        session.connect();
+        ChannelExec channel = (ChannelExec) session.openChannel("exec");
+        channel.setCommand("test run bob");
+        OutputStream os = new ByteArrayOutputStream();
+        channel.setOutputStream(os);
+        channel.connect();
+        await().atMost(2, SECONDS).until(channel::isClosed);
+        assertEquals("Permission denied\n", os.toString());
+        assertEquals(126, channel.getExitStatus());
+        session.disconnect();
+    }
+    
     @Test(expected = JSchException.class)
     public void testDaoFailedAuth() throws JSchException {
         JSch jsch = new JSch();
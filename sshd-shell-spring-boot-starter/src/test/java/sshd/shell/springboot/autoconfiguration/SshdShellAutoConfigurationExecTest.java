@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Properties;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ *
+ * @author anand
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = ConfigTest.class)
+public class SshdShellAutoConfigurationExecTest {
+
+    @Autowired
+    private SshdShellProperties properties;
+    @Autowired
+    private List<MeterBinder> meterBinders;
+
+    @Test
+    public void testExecCommand() throws JSchException {
+        assertExec("test run bob", "test run bob\n", 0);
+    }
+
+    @Test
+    public void testExecStreamingCommand() throws JSchException {
+        assertExec("dummy stream 3", "line 0\nline 1\nline 2\n", 0);
+    }
+
+    @Test
+    public void testExecBrokenStream() throws JSchException {
+        assertTrue(exec("dummy broken", 1).startsWith("line 0\nline 1\nError performing method invocation\n"));
+    }
+
+    @Test
+    public void testExecUnknownCommand() throws JSchException {
+        assertExec("xxx", "Unknown command. Enter 'help' for a list of supported commands\n", 127);
+        assertExec("test xxx", "Unknown sub command 'xxx'. Type 'test help' for more information\n", 127);
+    }
+
+    @Test
+    public void testExecBatch() throws JSchException {
+        assertExec("test run a\\;b;dummy stream 1", ">>> [1/2] test run a;b\ntest run a;b\n<<< [1/2] exit 0\n"
+                + ">>> [2/2] dummy stream 1\nline 0\n<<< [2/2] exit 0\n", 0);
+    }
+
+    @Test
+    public void testExecPipe() throws JSchException {
+        assertExec("dummy stream 100000 | grep 9$ | head 3", "line 9\nline 19\nline 29\n", 0);
+        assertExec("dummy stream 100 | wc -l", "100\n", 0);
+        assertExec("dummy stream | awk", "Unknown filter 'awk'. Supported filters are grep, head, tail, wc and sort\n",
+                2);
+    }
+
+    @Test
+    public void testExecAsyncOutput() throws JSchException {
+        assertExec("dummy async", "progress of [*]\ndummy async done\n", 0);
+    }
+
+    @Test
+    public void testExecBackgroundUnsupported() throws JSchException {
+        assertExec("dummy run &", "Job control is only supported in shell sessions\n", 1);
+        assertExec("jobs", "Job control is only supported in shell sessions\n", 1);
+    }
+
+    @Test
+    public void testExecEscapedBackground() throws JSchException {
+        assertExec("test run a \\& b\\&", "test run a & b&\n", 0);
+    }
+
+    @Test
+    public void testExecCommandMetrics() throws JSchException {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        meterBinders.forEach(meterBinder -> meterBinder.bindTo(registry));
+        assertExec("test run bob", "test run bob\n", 0);
+        assertExec("iae", "Error performing method invocation\njava.lang.IllegalArgumentException: iae\n", 1);
+        Timer timer = registry.find("sshd.shell.command").tags("command", "test", "subcommand", "run", "outcome",
+                "success").timer();
+        assertEquals(1, timer.count());
+        assertTrue(timer.totalTime(SECONDS) > 0);
+        assertEquals(1, registry.find("sshd.shell.command").tags("command", "iae", "subcommand", "none", "outcome",
+                "error").timer().count());
+        assertEquals(14, registry.find("sshd.shell.command.output").tags("command", "test", "subcommand", "run")
+                .summary().totalAmount(), 0);
+    }
+
+    @Test
+    public void testExecShellStats() throws JSchException {
+        assertExec("test run bob", "test run bob\n", 0);
+        String stats = exec("shell stats", 0);
+        assertTrue(stats, stats.matches("(?s)SSH sessions +open [1-9]\\d*, created [1-9]\\d*, authenticated [1-9].*"));
+        assertTrue(stats, stats.matches("(?s).*\nHandshake +count [1-9].*\nKey exchange +count [1-9].*"));
+        assertTrue(stats, stats.matches("(?s).*\nAuth simple +count [1-9].*"));
+        assertTrue(stats, stats.matches("(?s).*\nChannel exec +channels [1-9]\\d*, bytes read \\d+, "
+                + "bytes written [1-9].*"));
+        assertTrue(stats, stats.matches("(?s).*\nShell sessions +live 1, .*"));
+    }
+
+    @Test
+    public void testExecTop() throws JSchException {
+        String frame = exec("top -d 0.1", 0);
+        assertTrue(frame, frame.matches("(?s)top - up \\d+:\\d\\d:\\d\\d, \\d+ cpus, load average .*\nCPU: process .*"
+                + "\nMemory: heap .*\nGC:.*\nThreads: \\d+ live, .*\n\n +TID +CPU% +STATE +NAME\n.*"));
+        String frames = exec("top -d 0.1 -n 2", 0);
+        assertEquals(frames, 2, frames.split("top - up ").length - 1);
+        assertExec("top -x 1", "Usage: top [-d <seconds between refreshes>] [-n <number of refreshes>]\n", 1);
+    }
+
+    private void assertExec(String command, String expectedOutput, int expectedExitStatus) throws JSchException {
+        assertEquals(expectedOutput, exec(command, expectedExitStatus));
+    }
+
+    private String exec(String command, int expectedExitStatus) throws JSchException {
+        JSch jsch = new JSch();
+        Session session = jsch.getSession(properties.getShell().getUsername(), "localhost",
+                properties.getShell().getPort());
+        session.setPassword(properties.getShell().getPassword());
+        Properties config = new Properties();
+        config.put("StrictHostKeyChecking", "no");
+        session.setConfig(config);
+        session.connect();
+        ChannelExec channel = (ChannelExec) session.openChannel("exec");
+        channel.setCommand(command);
+        OutputStream os = new ByteArrayOutputStream();
+        channel.setOutputStream(os);
+        channel.connect();
+        await().atMost(2, SECONDS).until(channel::isClosed);
+        assertEquals(expectedExitStatus, channel.getExitStatus());
+        channel.disconnect();
+        session.disconnect();
+        return os.toString();
+    }
+}
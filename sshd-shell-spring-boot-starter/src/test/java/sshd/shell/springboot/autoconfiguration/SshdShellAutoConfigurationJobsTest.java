@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import com.jcraft.jsch.ChannelShell;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import static org.awaitility.Awaitility.await;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ *
+ * @author anand
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = ConfigTest.class, properties = "sshd.shell.jobs.maxPerSession=2")
+public class SshdShellAutoConfigurationJobsTest {
+
+    @Autowired
+    private SshdShellProperties properties;
+    @Autowired
+    private SshSessionExecutor sessionExecutor;
+    private Session session;
+    private ChannelShell channel;
+    private OutputStream input;
+    private OutputStream os;
+
+    @Before
+    public void connect() throws JSchException, IOException {
+        JSch jsch = new JSch();
+        session = jsch.getSession(properties.getShell().getUsername(), "localhost", properties.getShell().getPort());
+        session.setPassword(properties.getShell().getPassword());
+        Properties config = new Properties();
+        config.put("StrictHostKeyChecking", "no");
+        session.setConfig(config);
+        session.connect();
+        channel = (ChannelShell) session.openChannel("shell");
+        input = channel.getOutputStream();
+        os = new ByteArrayOutputStream();
+        channel.setOutputStream(os);
+        channel.connect();
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("Enter 'help' for a list of supported commands"));
+    }
+
+    @After
+    public void disconnect() {
+        channel.disconnect();
+        session.disconnect();
+    }
+
+    @Test
+    public void testCtrlCInterruptsCommandOnly() throws IOException {
+        send("dummy sleep 60000\r");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("app> dummy sleep 60000"));
+        send("\u0003");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("^C\n\rapp> "));
+        send("dummy run\r");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("dummy run successful"));
+    }
+
+    @Test
+    public void testTopRefreshesInPlaceUntilCtrlC() throws IOException {
+        send("top -d 0.1\r");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("\033[2J\033[1;1Htop - up "));
+        await().atMost(2, SECONDS).until(() -> os.toString().split("\033\\[\\d+;1H\n\r").length > 3);
+        send("\u0003");
+        await().atMost(2, SECONDS).until(() -> os.toString().endsWith("^C\n\rapp> "));
+    }
+
+    @Test
+    public void testBackgroundJob() throws IOException {
+        send("dummy sleep 500 &\r");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("[1] dummy sleep 500\n\r"));
+        send("jobs\r");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("[1]  Running  dummy sleep 500\n\r"));
+        await().atMost(2, SECONDS).until(() -> sessionExecutor.getActiveJobs() == 0);
+        send("\r");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("[1]  Done     dummy sleep 500\n\r"));
+        send("fg\r");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("dummy sleep 500\n\rdummy sleep done\n\r"));
+        send("jobs\r");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("No jobs"));
+    }
+
+    @Test
+    public void testKillJob() throws IOException {
+        send("dummy sleep 60000 &\r");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("[1] dummy sleep 60000\n\r"));
+        send("kill %1\r");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("[1]  Killed   dummy sleep 60000\n\r"));
+        await().atMost(2, SECONDS).until(() -> sessionExecutor.getActiveJobs() == 0);
+        send("kill 1\r");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("No such job: 1"));
+    }
+
+    @Test
+    public void testCtrlCKillsForegroundJob() throws IOException {
+        send("dummy sleep 60000 &\r");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("[1] dummy sleep 60000\n\r"));
+        send("fg\r");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("app> fg"));
+        send("\u0003");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("^C"));
+        await().atMost(2, SECONDS).until(() -> sessionExecutor.getActiveJobs() == 0);
+        send("jobs\r");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("No jobs"));
+    }
+
+    @Test
+    public void testTooManyJobs() throws IOException {
+        send("dummy sleep 60000 &\r");
+        send("dummy sleep 60000 &\r");
+        send("dummy sleep 60000 &\r");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains(
+                "Too many jobs, release finished jobs with 'fg' or 'kill'"));
+    }
+
+    @Test
+    public void testJobsCancelledOnExit() throws IOException {
+        send("dummy sleep 60000 &\r");
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("[1] dummy sleep 60000\n\r"));
+        send("exit\r");
+        await().atMost(2, SECONDS).until(() -> sessionExecutor.getActiveJobs() == 0);
+    }
+
+    private void send(String text) throws IOException {
+        input.write(text.getBytes(StandardCharsets.UTF_8));
+        input.flush();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.KeyPair;
+import com.jcraft.jsch.Session;
+import java.io.ByteArrayOutputStream;
+import java.util.Properties;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import sshd.shell.springboot.server.LoginRateLimiter;
+
+/**
+ *
+ * @author anand
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = ConfigTest.class, properties = {"sshd.shell.publicKeyFile=src/test/resources/id_rsa.pub",
+    "sshd.shell.auth.rateLimit.enabled=true", "sshd.shell.auth.rateLimit.userAttempts=1"})
+public class SshdShellAutoConfigurationRateLimitPublicKeyTest {
+
+    @Autowired
+    private SshdShellProperties properties;
+    @Autowired
+    private LoginRateLimiter rateLimiter;
+
+    @Test
+    public void testKeyProbesNotLimited() throws JSchException {
+        for (int i = 0; i < 3; i++) {
+            JSch jsch = new JSch();
+            addUnknownIdentity(jsch, "first");
+            addUnknownIdentity(jsch, "second");
+            connect(jsch, properties.getShell().getPassword()).disconnect();
+        }
+        for (int i = 0; i < 3; i++) {
+            JSch jsch = new JSch();
+            jsch.addIdentity("src/test/resources/id_rsa");
+            connect(jsch, null).disconnect();
+        }
+        JSch jsch = new JSch();
+        addUnknownIdentity(jsch, "first");
+        try {
+            connect(jsch, "wrong");
+            fail("Expected authentication failure");
+        } catch (JSchException ex) {
+            assertEquals("Auth fail", ex.getMessage());
+        }
+        try {
+            connect(jsch, properties.getShell().getPassword());
+            fail("Expected login to be rate limited");
+        } catch (JSchException ex) {
+            assertEquals("Auth fail", ex.getMessage());
+        }
+        assertEquals(1, rateLimiter.getRejectedByUser());
+    }
+
+    private static void addUnknownIdentity(JSch jsch, String name) throws JSchException {
+        KeyPair keyPair = KeyPair.genKeyPair(jsch, KeyPair.RSA, 1024);
+        ByteArrayOutputStream privateKey = new ByteArrayOutputStream();
+        keyPair.writePrivateKey(privateKey);
+        jsch.addIdentity(name, privateKey.toByteArray(), keyPair.getPublicKeyBlob(), null);
+    }
+
+    private Session connect(JSch jsch, String password) throws JSchException {
+        Session session = jsch.getSession(properties.getShell().getUsername(), "localhost",
+                properties.getShell().getPort());
+        session.setPassword(password);
+        Properties config = new Properties();
+        config.put("StrictHostKeyChecking", "no");
+        config.put("PreferredAuthentications", "publickey,password");
+        session.setConfig(config);
+        session.connect();
+        return session;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import java.util.Properties;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import sshd.shell.springboot.server.LoginRateLimiter;
+
+/**
+ *
+ * @author anand
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = ConfigTest.class, properties = {"sshd.shell.auth.rateLimit.enabled=true",
+    "sshd.shell.auth.rateLimit.userAttempts=1"})
+public class SshdShellAutoConfigurationRateLimitTest {
+
+    @Autowired
+    private SshdShellProperties properties;
+    @Autowired
+    private LoginRateLimiter rateLimiter;
+
+    @Test
+    public void testLoginRejectedAfterFailedAttempt() throws JSchException {
+        connect(properties.getShell().getPassword()).disconnect();
+        connect(properties.getShell().getPassword()).disconnect();
+        try {
+            connect("wrong");
+            fail("Expected authentication failure");
+        } catch (JSchException ex) {
+            assertEquals("Auth fail", ex.getMessage());
+        }
+        try {
+            connect(properties.getShell().getPassword());
+            fail("Expected login to be rate limited");
+        } catch (JSchException ex) {
+            assertEquals("Auth fail", ex.getMessage());
+        }
+        assertEquals(1, rateLimiter.getRejectedByUser());
+    }
+
+    private Session connect(String password) throws JSchException {
+        JSch jsch = new JSch();
+        Session session = jsch.getSession(properties.getShell().getUsername(), "localhost",
+                properties.getShell().getPort());
+        session.setPassword(password);
+        Properties config = new Properties();
+        config.put("StrictHostKeyChecking", "no");
+        config.put("PreferredAuthentications", "password");
+        session.setConfig(config);
+        session.connect();
+        return session;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import com.jcraft.jsch.ChannelShell;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import java.io.OutputStream;
+import java.util.Properties;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ *
+ * @author anand
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = ConfigTest.class, properties = {"sshd.shell.session.maxSessionsPerUser=1",
+    "sshd.shell.session.idleTimeout=2"})
+public class SshdShellAutoConfigurationSessionLimitTest {
+
+    @Autowired
+    private SshdShellProperties properties;
+    @Autowired
+    private SshSessionRegistry sessionRegistry;
+
+    @Test
+    public void testPerUserLimitAndIdleEviction() throws JSchException {
+        Session session = connect();
+        ChannelShell channel = (ChannelShell) session.openChannel("shell");
+        OutputStream os = new ByteArrayOutputStream();
+        channel.setOutputStream(os);
+        channel.connect();
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("Enter 'help' for a list of supported commands"));
+        assertEquals(1, sessionRegistry.getLiveSessions());
+        Session limitedSession = connect();
+        ChannelShell limitedChannel = (ChannelShell) limitedSession.openChannel("shell");
+        OutputStream limitedOs = new ByteArrayOutputStream();
+        limitedChannel.setOutputStream(limitedOs);
+        limitedChannel.connect();
+        await().atMost(2, SECONDS).until(() -> limitedOs.toString()
+                .contains("Too many sessions. Please try again later"));
+        assertEquals(1, sessionRegistry.getLimitedSessions());
+        limitedChannel.disconnect();
+        limitedSession.disconnect();
+        await().atMost(5, SECONDS).until(() -> os.toString().contains(SshSessionRegistry.IDLE_TIMEOUT_MESSAGE));
+        await().atMost(2, SECONDS).until(channel::isClosed);
+        assertEquals(0, sessionRegistry.getLiveSessions());
+        assertTrue(sessionRegistry.getIdleEvictions() >= 1);
+        session.disconnect();
+    }
+
+    private Session connect() throws JSchException {
+        JSch jsch = new JSch();
+        Session session = jsch.getSession(properties.getShell().getUsername(), "localhost",
+                properties.getShell().getPort());
+        session.setPassword(properties.getShell().getPassword());
+        Properties config = new Properties();
+        config.put("StrictHostKeyChecking", "no");
+        session.setConfig(config);
+        session.connect();
+        return session;
+    }
+}
@@ -30,10 +30,13 @@ import java.util.regex.Pattern;
 import org.apache.commons.io.input.CharSequenceInputStream;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.task.TaskDecorator;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 /**
@@ -46,6 +49,13 @@ public class SshdShellAutoConfigurationTest {
 
     @Autowired
     private SshdShellProperties properties;
+    @Autowired
+    private ApplicationContext appContext;
+
+    @Test
+    public void testNoTaskDecoratorByDefault() {
+        assertTrue(appContext.getBeansOfType(TaskDecorator.class).isEmpty());
+    }
     
     @Test
     public void testExitCommand() throws JSchException {
@@ -171,9 +181,11 @@ public class SshdShellAutoConfigurationTest {
         channel.setOutputStream(os);
         channel.connect();
         await().atMost(2, SECONDS).until(() -> os.toString().contains("Enter 'help' for a list of supported commands"
-                + "\n\rapp> help\r\nSupported Commands\n\rdummy\t\tdummy description\n\rexit\t\tExit shell\n\rhealth"
-                + "\t\tHealth of services\n\rhelp\t\tShow list of help commands\n\riae\t\tthrows IAE\n\rtest"
-                + "\t\ttest description\n\rapp> "));
+                + "\n\rapp> help\r\nSupported Commands\n\rdummy\t\tdummy description\n\rexit\t\tExit shell\n\rfg"
+                + "\t\tWait for a background job and show its output\n\rhealth\t\tHealth of services\n\rhelp"
+                + "\t\tShow list of help commands\n\riae\t\tthrows IAE\n\rjobs\t\tList background jobs\n\rkill"
+                + "\t\tCancel a background job\n\rshell\t\tSSH shell server\n\rtest\t\ttest description\n\rtop"
+                + "\t\tLive view of CPU, memory, GC and the busiest threads\n\rapp> "));
         channel.disconnect();
         session.disconnect();
     }
@@ -194,7 +206,8 @@ public class SshdShellAutoConfigurationTest {
         channel.setOutputStream(os);
         channel.connect();
         await().atMost(2, SECONDS).until(() -> os.toString().contains("app> health show\r\nSupported health indicators "
-                + "below:\n\r\tdiskspace\n\r\theapmemory\n\rUsage: health show <health indicator>\n\rapp> "));
+                + "below:\n\r\tdiskspace\n\r\theapmemory\n\rUsage: health show <health indicator> or health all"
+                + "\n\rapp> "));
         channel.disconnect();
         session.disconnect();
     }
@@ -216,7 +229,7 @@ public class SshdShellAutoConfigurationTest {
         channel.connect();
         await().atMost(2, SECONDS).until(() -> os.toString().contains("app> health show unknown\r\nUnsupported health "
                 + "indicator unknown\n\rSupported health indicators below:\n\r\tdiskspace\n\r\theapmemory\n\rUsage: "
-                + "health show <health indicator>\n\rapp> "));
+                + "health show <health indicator> or health all\n\rapp> "));
         channel.disconnect();
         session.disconnect();
     }
@@ -264,4 +277,72 @@ public class SshdShellAutoConfigurationTest {
         channel.disconnect();
         session.disconnect();
     }
+    
+    @Test
+    public void testStreamingSubcommand() throws JSchException {
+        JSch jsch = new JSch();
+        Session session = jsch.getSession(properties.getShell().getUsername(), "localhost",
+                properties.getShell().getPort());
+        session.setPassword(properties.getShell().getPassword());
+        Properties config = new Properties();
+        config.put("StrictHostKeyChecking", "no");
+        session.setConfig(config);
+        session.connect();
+        ChannelShell channel = (ChannelShell) session.openChannel("shell");
+        channel.setInputStream(new CharSequenceInputStream("dummy stream\rdummy stream 100000\r",
+                StandardCharsets.UTF_8));
+        OutputStream os = new ByteArrayOutputStream();
+        channel.setOutputStream(os);
+        channel.connect();
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("app> dummy stream\r\nline 0\n\rline 1\n\r"
+                + "line 2\n\rapp> "));
+        await().atMost(10, SECONDS).until(() -> os.toString().contains("line 99999\n\rapp> "));
+        channel.disconnect();
+        session.disconnect();
+    }
+    
+    @Test
+    public void testHealthCommandAll() throws JSchException {
+        JSch jsch = new JSch();
+        Session session = jsch.getSession(properties.getShell().getUsername(), "localhost",
+                properties.getShell().getPort());
+        session.setPassword(properties.getShell().getPassword());
+        Properties config = new Properties();
+        config.put("StrictHostKeyChecking", "no");
+        session.setConfig(config);
+        session.connect();
+        ChannelShell channel = (ChannelShell) session.openChannel("shell");
+        channel.setInputStream(new CharSequenceInputStream("health all\r", StandardCharsets.UTF_8));
+        OutputStream os = new ByteArrayOutputStream();
+        channel.setOutputStream(os);
+        channel.connect();
+        Pattern pattern = Pattern.compile(".*app> health all\r\n\\{\"diskspace\":\\{\"status\":\"UP\",.*\\},"
+                + "\"heapmemory\":\\{\"details\":\\{\"used\":.*", Pattern.DOTALL);
+        await().atMost(2, SECONDS).until(() -> pattern.matcher(os.toString()).matches());
+        channel.disconnect();
+        session.disconnect();
+    }
+    
+    @Test
+    public void testBatchCommand() throws JSchException {
+        JSch jsch = new JSch();
+        Session session = jsch.getSession(properties.getShell().getUsername(), "localhost",
+                properties.getShell().getPort());
+        session.setPassword(properties.getShell().getPassword());
+        Properties config = new Properties();
+        config.put("StrictHostKeyChecking", "no");
+        session.setConfig(config);
+        session.connect();
+        ChannelShell channel = (ChannelShell) session.openChannel("shell");
+        channel.setInputStream(new CharSequenceInputStream("test run bob; xxx\r", StandardCharsets.UTF_8));
+        OutputStream os = new ByteArrayOutputStream();
+        channel.setOutputStream(os);
+        channel.connect();
+        await().atMost(2, SECONDS).until(() -> os.toString().contains("app> test run bob; xxx\r\n"
+                + ">>> [1/2] test run bob\n\rtest run bob\n\r<<< [1/2] exit 0\n\r"
+                + ">>> [2/2] xxx\n\rUnknown command. Enter 'help' for a list of supported commands\n\r"
+                + "<<< [2/2] exit 127\n\rapp> "));
+        channel.disconnect();
+        session.disconnect();
+    }
 }
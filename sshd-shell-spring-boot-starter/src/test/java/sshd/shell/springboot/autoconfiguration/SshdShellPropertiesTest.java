@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.autoconfiguration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+/**
+ *
+ * @author anand
+ */
+public class SshdShellPropertiesTest {
+
+    @Test
+    public void testDefaults() {
+        SshdShellProperties properties = bind(new HashMap<>());
+        assertEquals(Duration.ofMinutes(5), properties.getShell().getAuth().getCache().getTtl());
+        assertEquals(Duration.ofSeconds(10), properties.getShell().getAuth().getAsync().getTimeout());
+        assertEquals(Duration.ofMinutes(1), properties.getShell().getAuth().getRateLimit().getPeriod());
+        assertEquals(Duration.ZERO, properties.getShell().getSession().getIdleTimeout());
+        assertEquals(Duration.ZERO, properties.getShell().getSession().getMaxDuration());
+        assertEquals(Duration.ofMillis(20), properties.getShell().getOutput().getFlushInterval());
+        assertEquals(Duration.ofMinutes(1), properties.getShell().getSession().getExecutor().getKeepAlive());
+        assertEquals(Duration.ofSeconds(5), properties.getShell().getHealth().getTimeout());
+        assertEquals(Duration.ZERO, properties.getShell().getHealth().getCacheTtl());
+    }
+
+    @Test
+    public void testPlainNumbersUseDefaultUnit() {
+        Map<String, String> map = new HashMap<>();
+        map.put("sshd.shell.health.timeout", "200");
+        map.put("sshd.shell.health.cacheTtl", "1500");
+        map.put("sshd.shell.auth.cache.ttl", "30");
+        map.put("sshd.shell.auth.async.timeout", "250");
+        map.put("sshd.shell.auth.rateLimit.period", "10");
+        map.put("sshd.shell.session.idleTimeout", "300");
+        map.put("sshd.shell.session.maxDuration", "3600");
+        map.put("sshd.shell.output.flushInterval", "5");
+        map.put("sshd.shell.session.executor.keepAlive", "120");
+        SshdShellProperties properties = bind(map);
+        assertEquals(Duration.ofMinutes(2), properties.getShell().getSession().getExecutor().getKeepAlive());
+        assertEquals(Duration.ofMillis(5), properties.getShell().getOutput().getFlushInterval());
+        assertEquals(Duration.ofMinutes(5), properties.getShell().getSession().getIdleTimeout());
+        assertEquals(Duration.ofHours(1), properties.getShell().getSession().getMaxDuration());
+        assertEquals(Duration.ofSeconds(10), properties.getShell().getAuth().getRateLimit().getPeriod());
+        assertEquals(Duration.ofMillis(250), properties.getShell().getAuth().getAsync().getTimeout());
+        assertEquals(Duration.ofSeconds(30), properties.getShell().getAuth().getCache().getTtl());
+        assertEquals(Duration.ofMillis(200), properties.getShell().getHealth().getTimeout());
+        assertEquals(Duration.ofMillis(1500), properties.getShell().getHealth().getCacheTtl());
+    }
+
+    @Test
+    public void testDurationsWithUnit() {
+        Map<String, String> map = new HashMap<>();
+        map.put("sshd.shell.health.timeout", "2s");
+        map.put("sshd.shell.health.cacheTtl", "1m");
+        map.put("sshd.shell.auth.cache.ttl", "1h");
+        map.put("sshd.shell.auth.async.timeout", "3s");
+        map.put("sshd.shell.auth.rateLimit.period", "500ms");
+        map.put("sshd.shell.session.idleTimeout", "15m");
+        map.put("sshd.shell.session.maxDuration", "8h");
+        map.put("sshd.shell.output.flushInterval", "1s");
+        map.put("sshd.shell.session.executor.keepAlive", "10m");
+        SshdShellProperties properties = bind(map);
+        assertEquals(Duration.ofMinutes(10), properties.getShell().getSession().getExecutor().getKeepAlive());
+        assertEquals(Duration.ofSeconds(1), properties.getShell().getOutput().getFlushInterval());
+        assertEquals(Duration.ofMinutes(15), properties.getShell().getSession().getIdleTimeout());
+        assertEquals(Duration.ofHours(8), properties.getShell().getSession().getMaxDuration());
+        assertEquals(Duration.ofMillis(500), properties.getShell().getAuth().getRateLimit().getPeriod());
+        assertEquals(Duration.ofSeconds(3), properties.getShell().getAuth().getAsync().getTimeout());
+        assertEquals(Duration.ofHours(1), properties.getShell().getAuth().getCache().getTtl());
+        assertEquals(Duration.ofSeconds(2), properties.getShell().getHealth().getTimeout());
+        assertEquals(Duration.ofMinutes(1), properties.getShell().getHealth().getCacheTtl());
+    }
+
+    private static SshdShellProperties bind(Map<String, String> map) {
+        SshdShellProperties properties = new SshdShellProperties();
+        new Binder(new MapConfigurationPropertySource(map)).bind("sshd", Bindable.ofInstance(properties));
+        return properties;
+    }
+}
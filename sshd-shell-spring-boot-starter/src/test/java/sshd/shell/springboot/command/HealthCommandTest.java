@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.command;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import sshd.shell.springboot.autoconfiguration.SshdShellProperties;
+
+/**
+ *
+ * @author anand
+ */
+public class HealthCommandTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final UpHealthIndicator upHealthIndicator = new UpHealthIndicator();
+    private HealthCommand healthCommand;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        healthCommand.shutdown();
+    }
+
+    @Test
+    public void testAllWithTimeout() throws JsonProcessingException, InterruptedException {
+        healthCommand = healthCommand(200, 0);
+        assertEquals("{\"failing\":{\"status\":\"DOWN\",\"details\":{\"error\":\"java.lang.IllegalStateException: "
+                + "failing\"}},\"slow\":{\"status\":\"TIMEOUT\"},\"status\":{\"status\":\"UP\",\"details\":{\"status\":"
+                + "\"degraded\"}},\"up\":{\"status\":\"UP\",\"details\":{\"count\":1}}}", healthCommand.all(null));
+        assertEquals("{\"status\":\"TIMEOUT\",\"slow\":{}}", healthCommand.show("slow"));
+    }
+
+    @Test
+    public void testCachedHealth() throws JsonProcessingException, InterruptedException {
+        healthCommand = healthCommand(200, 60000);
+        assertEquals("{\"status\":\"UP\",\"up\":{\"count\":1}}", healthCommand.show("up"));
+        assertEquals("{\"status\":\"UP\",\"up\":{\"count\":1}}", healthCommand.show("up"));
+        assertEquals(1, upHealthIndicator.count.get());
+    }
+
+    private HealthCommand healthCommand(long timeout, long cacheTtl) {
+        SshdShellProperties properties = new SshdShellProperties();
+        properties.getShell().getHealth().setTimeout(Duration.ofMillis(timeout));
+        properties.getShell().getHealth().setCacheTtl(Duration.ofMillis(cacheTtl));
+        return new HealthCommand(Arrays.<HealthIndicator>asList(upHealthIndicator, new SlowHealthIndicator(),
+                new FailingHealthIndicator(), new StatusHealthIndicator()), properties);
+    }
+
+    private static class UpHealthIndicator implements HealthIndicator {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Health health() {
+            return Health.up().withDetail("count", count.incrementAndGet()).build();
+        }
+    }
+
+    private class SlowHealthIndicator implements HealthIndicator {
+
+        @Override
+        public Health health() {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return Health.up().build();
+        }
+    }
+
+    private static class StatusHealthIndicator implements HealthIndicator {
+
+        @Override
+        public Health health() {
+            return Health.up().withDetail("status", "degraded").build();
+        }
+    }
+
+    private static class FailingHealthIndicator implements HealthIndicator {
+
+        @Override
+        public Health health() {
+            throw new IllegalStateException("failing");
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.command;
+
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ *
+ * @author anand
+ */
+public class ScreenDiffTest {
+
+    private final ScreenDiff screen = new ScreenDiff();
+
+    @Test
+    public void testFirstFrameDrawnInFull() {
+        assertEquals("\033[2J\033[1;1Hload 0.50\033[3;1Hthreads 12\033[4;1H",
+                screen.render(Arrays.asList("load 0.50", "", "threads 12")));
+    }
+
+    @Test
+    public void testOnlyChangedCellsRedrawn() {
+        screen.render(Arrays.asList("load 0.50", "heap 10M", "threads 12"));
+        assertEquals("\033[4;1H", screen.render(Arrays.asList("load 0.50", "heap 10M", "threads 12")));
+        assertEquals("\033[1;8H7\033[3;10H5\033[4;1H",
+                screen.render(Arrays.asList("load 0.70", "heap 10M", "threads 15")));
+    }
+
+    @Test
+    public void testShorterRowsAndFramesErased() {
+        screen.render(Arrays.asList("load 0.50", "heap 10M", "threads 12"));
+        assertEquals("\033[2;6H9M\033[K\033[3;1H\033[K\033[3;1H",
+                screen.render(Arrays.asList("load 0.50", "heap 9M")));
+        assertEquals("\033[2;6H12M\033[3;1Hthreads 8\033[4;1H",
+                screen.render(Arrays.asList("load 0.50", "heap 12M", "threads 8")));
+    }
+}
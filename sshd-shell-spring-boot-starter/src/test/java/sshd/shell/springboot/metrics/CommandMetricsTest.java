@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+import sshd.shell.springboot.autoconfiguration.CommandExecutionListener.Outcome;
+
+/**
+ *
+ * @author anand
+ */
+public class CommandMetricsTest {
+
+    @Test
+    public void testExecutionsRecordedInRegistriesBoundLater() {
+        CommandMetrics commandMetrics = new CommandMetrics();
+        commandMetrics.commandExecuted("test", "run", Outcome.SUCCESS, 2_000_000, 10);
+        MeterRegistry registry = new SimpleMeterRegistry();
+        commandMetrics.bindTo(registry);
+        commandMetrics.commandExecuted("test", "run", Outcome.SUCCESS, 4_000_000, 30);
+        commandMetrics.commandExecuted("test", "run", Outcome.ERROR, 1_000_000, 5);
+        Timer timer = registry.find("sshd.shell.command").tags("command", "test", "subcommand", "run", "outcome",
+                "success").timer();
+        assertEquals(1, timer.count());
+        assertEquals(4, timer.totalTime(TimeUnit.MILLISECONDS), 0);
+        assertEquals(1, registry.find("sshd.shell.command").tags("outcome", "error").timer().count());
+        assertEquals(35, registry.find("sshd.shell.command.output").tags("command", "test").summary()
+                .totalAmount(), 0);
+    }
+
+    @Test
+    public void testPermissionDeniedCounted() {
+        CommandMetrics commandMetrics = new CommandMetrics();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        commandMetrics.bindTo(registry);
+        commandMetrics.commandExecuted("admin", null, Outcome.PERMISSION_DENIED, 0, 0);
+        commandMetrics.commandExecuted("admin", null, Outcome.PERMISSION_DENIED, 0, 0);
+        assertEquals(2, registry.find("sshd.shell.command.denied").tags("command", "admin", "subcommand", "none")
+                .counter().count(), 0);
+        assertNull(registry.find("sshd.shell.command").timer());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.server;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import sshd.shell.springboot.autoconfiguration.SshdShellProperties;
+
+/**
+ *
+ * @author anand
+ */
+public class AsyncAuthenticationProviderTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    public void testAuthentication() {
+        AsyncAuthenticationProvider authProvider = new AsyncAuthenticationProvider(new TestAuthenticationProvider(),
+                properties(1, 0, 1000));
+        assertEquals("bob", authProvider.authenticate(token("bob")).getName());
+    }
+
+    @Test(expected = BadCredentialsException.class)
+    public void testFailedAuthentication() {
+        new AsyncAuthenticationProvider(new TestAuthenticationProvider(), properties(1, 0, 1000))
+                .authenticate(token("bad"));
+    }
+
+    @Test(expected = AuthenticationServiceException.class)
+    public void testTimeout() {
+        new AsyncAuthenticationProvider(new TestAuthenticationProvider(), properties(1, 0, 100))
+                .authenticate(token("slow"));
+    }
+
+    @Test
+    public void testConcurrencyCap() throws InterruptedException {
+        AsyncAuthenticationProvider authProvider = new AsyncAuthenticationProvider(new TestAuthenticationProvider(),
+                properties(1, 0, 60000));
+        CountDownLatch started = new CountDownLatch(1);
+        callers.execute(() -> {
+            started.countDown();
+            authProvider.authenticate(token("slow"));
+        });
+        started.await();
+        Thread.sleep(100);
+        try {
+            authProvider.authenticate(token("bob"));
+            fail("Expected authentication to be rejected");
+        } catch (AuthenticationServiceException ex) {
+            assertEquals("Too many concurrent authentications, rejecting bob", ex.getMessage());
+        }
+    }
+
+    private static Authentication token(String username) {
+        return new UsernamePasswordAuthenticationToken(username, username);
+    }
+
+    private static SshdShellProperties.Shell.Auth.Async properties(int maxConcurrent, int queueCapacity,
+            long timeout) {
+        SshdShellProperties.Shell.Auth.Async properties = new SshdShellProperties.Shell.Auth.Async();
+        properties.setEnabled(true);
+        properties.setMaxConcurrent(maxConcurrent);
+        properties.setQueueCapacity(queueCapacity);
+        properties.setTimeout(Duration.ofMillis(timeout));
+        return properties;
+    }
+
+    private class TestAuthenticationProvider implements AuthenticationProvider {
+
+        @Override
+        public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+            if (authentication.getName().equals("bad")) {
+                throw new BadCredentialsException("Bad credentials");
+            }
+            if (authentication.getName().equals("slow")) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return authentication;
+        }
+
+        @Override
+        public boolean supports(Class<?> authentication) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.server;
+
+import java.time.Duration;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import sshd.shell.springboot.autoconfiguration.SshdShellProperties;
+
+/**
+ *
+ * @author anand
+ */
+public class LoginRateLimiterTest {
+
+    @Test
+    public void testUserLimit() {
+        LoginRateLimiter rateLimiter = new LoginRateLimiter(properties(10, 3, 100));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rateLimiter.tryAcquire("10.0.0." + i, "bob"));
+        }
+        assertFalse(rateLimiter.tryAcquire("10.0.0.3", "bob"));
+        assertTrue(rateLimiter.tryAcquire("10.0.0.3", "alice"));
+        assertEquals(1, rateLimiter.getRejectedByUser());
+        assertEquals(0, rateLimiter.getRejectedByAddress());
+    }
+
+    @Test
+    public void testAddressLimit() {
+        LoginRateLimiter rateLimiter = new LoginRateLimiter(properties(2, 10, 100));
+        assertTrue(rateLimiter.tryAcquire("10.0.0.1", "alice"));
+        assertTrue(rateLimiter.tryAcquire("10.0.0.1", "bob"));
+        assertFalse(rateLimiter.tryAcquire("10.0.0.1", "carol"));
+        assertTrue(rateLimiter.tryAcquire("10.0.0.2", "carol"));
+        assertEquals(1, rateLimiter.getRejectedByAddress());
+    }
+
+    @Test
+    public void testSuccessfulLoginsNotLimited() {
+        LoginRateLimiter rateLimiter = new LoginRateLimiter(properties(2, 2, 100));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(rateLimiter.tryAcquire("10.0.0.1", "bob"));
+            rateLimiter.release("10.0.0.1", "bob");
+        }
+    }
+
+    @Test
+    public void testBoundedKeys() {
+        LoginRateLimiter rateLimiter = new LoginRateLimiter(properties(10, 10, 100));
+        for (int i = 0; i < 100; i++) {
+            rateLimiter.tryAcquire("10.0.0." + i, "user" + i);
+        }
+        // maxKeys addresses and maxKeys usernames
+        assertTrue(rateLimiter.size() <= 20);
+    }
+
+    @Test
+    public void testDrainedBucketsNotEvicted() {
+        LoginRateLimiter rateLimiter = new LoginRateLimiter(properties(10, 3, 100));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rateLimiter.tryAcquire("10.0.0.1", "alice"));
+        }
+        for (int i = 0; i < 100; i++) {
+            rateLimiter.tryAcquire("10.0.1." + i, "user" + i);
+        }
+        assertFalse(rateLimiter.tryAcquire("10.0.0.1", "alice"));
+        assertTrue(rateLimiter.size() <= 20);
+    }
+
+    @Test
+    public void testFullTableAdmitsNewKeys() {
+        LoginRateLimiter rateLimiter = new LoginRateLimiter(properties(10, 1, 100));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(rateLimiter.tryAcquire("10.0.1." + i, "user" + i));
+        }
+        assertTrue(rateLimiter.tryAcquire("10.0.0.1", "bob"));
+        assertFalse(rateLimiter.tryAcquire("10.0.0.1", "bob"));
+        assertEquals(20, rateLimiter.size());
+    }
+
+    @Test
+    public void testRefilledBucketsEvicted() throws InterruptedException {
+        LoginRateLimiter rateLimiter = new LoginRateLimiter(properties(100, 10, 1));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(rateLimiter.tryAcquire("10.0.0.1", "user" + i));
+        }
+        Thread.sleep(300);
+        assertTrue(rateLimiter.tryAcquire("10.0.0.1", "bob"));
+        // All usernames refilled and were swept at once
+        assertEquals(2, rateLimiter.size());
+    }
+
+    private static SshdShellProperties.Shell.Auth.RateLimit properties(int addressAttempts, int userAttempts,
+            long period) {
+        SshdShellProperties.Shell.Auth.RateLimit properties = new SshdShellProperties.Shell.Auth.RateLimit();
+        properties.setEnabled(true);
+        properties.setAddressAttempts(addressAttempts);
+        properties.setUserAttempts(userAttempts);
+        properties.setPeriod(Duration.ofSeconds(period));
+        properties.setMaxKeys(10);
+        return properties;
+    }
+}
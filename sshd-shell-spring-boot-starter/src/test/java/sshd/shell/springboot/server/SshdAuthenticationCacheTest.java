@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.server;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ *
+ * @author anand
+ */
+public class SshdAuthenticationCacheTest {
+
+    private final Set<String> roles = Collections.singleton("ADMIN");
+
+    @Test
+    public void testHitAndMiss() {
+        SshdAuthenticationCache authCache = new SshdAuthenticationCache(10, 1, TimeUnit.MINUTES);
+        assertNull(authCache.get("bob", "bob"));
+        authCache.put("bob", "bob", roles);
+        assertEquals(roles, authCache.get("bob", "bob"));
+        assertNull(authCache.get("bob", "wrong"));
+        assertEquals(1, authCache.getHits());
+        assertEquals(2, authCache.getMisses());
+    }
+
+    @Test
+    public void testExpiry() throws InterruptedException {
+        SshdAuthenticationCache authCache = new SshdAuthenticationCache(10, 10, TimeUnit.MILLISECONDS);
+        authCache.put("bob", "bob", roles);
+        TimeUnit.MILLISECONDS.sleep(20);
+        assertNull(authCache.get("bob", "bob"));
+        assertEquals(0, authCache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        SshdAuthenticationCache authCache = new SshdAuthenticationCache(2, 1, TimeUnit.MINUTES);
+        authCache.put("alice", "alice", roles);
+        authCache.put("bob", "bob", roles);
+        authCache.get("alice", "alice");
+        authCache.put("carol", "carol", roles);
+        assertEquals(roles, authCache.get("alice", "alice"));
+        assertNull(authCache.get("bob", "bob"));
+        assertEquals(2, authCache.size());
+    }
+
+    @Test
+    public void testInvalidation() {
+        SshdAuthenticationCache authCache = new SshdAuthenticationCache(10, 1, TimeUnit.MINUTES);
+        authCache.put("alice", "alice", roles);
+        authCache.put("bob", "bob", roles);
+        authCache.invalidate("alice");
+        assertNull(authCache.get("alice", "alice"));
+        assertEquals(1, authCache.size());
+        authCache.invalidateAll();
+        assertEquals(0, authCache.size());
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import org.apache.sshd.common.config.keys.PublicKeyEntry;
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author anand
+ */
+public class SshdAuthorizedKeysAuthenticatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRolesPerKey() throws Exception {
+        PublicKey alice = generateKey();
+        PublicKey bob = generateKey();
+        PublicKey eve = generateKey();
+        Path file = write(folder.newFile("authorized_keys").toPath(), "# operators",
+                "no-pty,roles=\"ADMIN, USER\" " + PublicKeyEntry.toString(alice) + " alice@host",
+                PublicKeyEntry.toString(bob) + " bob@host",
+                "not a key");
+        try (SshdAuthorizedKeysAuthenticator authenticator = new SshdAuthorizedKeysAuthenticator(file)) {
+            assertEquals(2, authenticator.size());
+            assertEquals(new LinkedHashSet<>(Arrays.asList("ADMIN", "USER")), authenticator.getRoles(alice));
+            assertEquals(Collections.singleton("*"), authenticator.getRoles(bob));
+            assertNull(authenticator.getRoles(eve));
+        }
+    }
+
+    @Test
+    public void testReloadOnChange() throws Exception {
+        PublicKey alice = generateKey();
+        PublicKey bob = generateKey();
+        Path file = write(folder.newFile("authorized_keys").toPath(), PublicKeyEntry.toString(alice));
+        try (SshdAuthorizedKeysAuthenticator authenticator = new SshdAuthorizedKeysAuthenticator(file)) {
+            assertEquals(Collections.singleton("*"), authenticator.getRoles(alice));
+            write(file, "roles=USER " + PublicKeyEntry.toString(bob));
+            await().atMost(10, SECONDS).until(() -> authenticator.getRoles(alice) == null);
+            assertEquals(Collections.singleton("USER"), authenticator.getRoles(bob));
+            Files.delete(file);
+            await().atMost(10, SECONDS).until(() -> authenticator.size() == 0);
+        }
+    }
+
+    @Test
+    public void testMissingDirectory() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("missing").resolve("authorized_keys");
+        try (SshdAuthorizedKeysAuthenticator authenticator = new SshdAuthorizedKeysAuthenticator(file)) {
+            assertEquals(0, authenticator.size());
+            assertNull(authenticator.getRoles(generateKey()));
+        }
+    }
+
+    @Test
+    public void testParseRoles() {
+        assertEquals(Collections.singleton("*"), SshdAuthorizedKeysAuthenticator.parseRoles(""));
+        assertEquals(Collections.singleton("*"), SshdAuthorizedKeysAuthenticator.parseRoles("no-pty,from=\"a,b\""));
+        assertEquals(new LinkedHashSet<>(Arrays.asList("ADMIN", "OPS")),
+                SshdAuthorizedKeysAuthenticator.parseRoles("from=\"a,b\",roles=\"ADMIN,OPS\",no-pty"));
+    }
+
+    private static Path write(Path file, String... lines) throws IOException {
+        return Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    private static PublicKey generateKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        return generator.generateKeyPair().getPublic();
+    }
+}
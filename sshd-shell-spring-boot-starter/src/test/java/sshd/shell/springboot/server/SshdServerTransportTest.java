@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 anand.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sshd.shell.springboot.server;
+
+import org.apache.sshd.common.io.nio2.Nio2ServiceFactoryFactory;
+import org.apache.sshd.server.SshServer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+import sshd.shell.springboot.autoconfiguration.SshdShellProperties;
+
+/**
+ *
+ * @author anand
+ */
+public class SshdServerTransportTest {
+
+    @Test
+    public void testNio2() {
+        assertEquals(Nio2ServiceFactoryFactory.class, SshdServer.createIoServiceFactoryFactory("nio2").getClass());
+        assertEquals(Nio2ServiceFactoryFactory.class,
+                SshdServer.createIoServiceFactoryFactory(Nio2ServiceFactoryFactory.class.getName()).getClass());
+    }
+
+    @Test
+    public void testDefaultTransportLeftToSshd() {
+        SshServer server = SshServer.setUpDefaultServer();
+        SshdShellProperties.Shell.Transport transport = new SshdShellProperties.Shell.Transport();
+        SshdServer.configureTransport(server, transport);
+        assertNull(server.getIoServiceFactoryFactory());
+        transport.setType("nio2");
+        SshdServer.configureTransport(server, transport);
+        assertEquals(Nio2ServiceFactoryFactory.class, server.getIoServiceFactoryFactory().getClass());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMinaNotInClasspath() {
+        SshdServer.createIoServiceFactoryFactory("MINA");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTransport() {
+        SshdServer.createIoServiceFactoryFactory("java.lang.String");
+    }
+}